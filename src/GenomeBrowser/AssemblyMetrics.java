@@ -0,0 +1,22 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package GenomeBrowser;
+
+// Helper class to store metrics
+class AssemblyMetrics {
+    int totalContigs;
+    long totalLength;
+    long largestContig;
+    double averageLength;
+    long n50;
+
+    public AssemblyMetrics(int totalContigs, long totalLength, long largestContig, double averageLength, long n50) {
+        this.totalContigs = totalContigs;
+        this.totalLength = totalLength;
+        this.largestContig = largestContig;
+        this.averageLength = averageLength;
+        this.n50 = n50;
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package GenomeBrowser;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Nucleotide composition kernel shared by the ingestor, the explorer and the
+ * viewer. Counts A, C, G, T (U is counted as T) and N in either case, plus
+ * lowercase (soft-masked) letters, over raw ASCII bytes.
+ *
+ * The SIMD kernel in {@link VectorBaseCounter} is used when the JVM runs with
+ * {@code --add-modules jdk.incubator.vector}; otherwise a table-driven scalar
+ * loop is used. Start with {@code -Dgenomebrowser.kernel=scalar} to force the
+ * scalar loop.
+ *
+ * @author davidoluwasusi
+ */
+public final class BaseCounter {
+
+    // Slots of a counts array
+    public static final int A = 0;
+    public static final int C = 1;
+    public static final int G = 2;
+    public static final int T = 3;
+    public static final int N = 4;
+    public static final int OTHER = 5;
+    public static final int SOFT_MASKED = 6;
+    public static final int COUNTS = 7;
+
+    /**
+     * Adds the composition of {@code bytes[from, to)} to {@code counts}.
+     * Every byte lands in exactly one of A, C, G, T, N and OTHER; lowercase
+     * letters are counted in SOFT_MASKED as well.
+     */
+    interface Kernel {
+        void count(byte[] bytes, int from, int to, long[] counts);
+    }
+
+    private static final Kernel SCALAR = new ScalarKernel();
+    private static final Kernel KERNEL = loadKernel();
+
+    private BaseCounter() {
+    }
+
+    public static void count(byte[] bytes, int from, int to, long[] counts) {
+        KERNEL.count(bytes, from, to, counts);
+    }
+
+    public static long[] count(String sequence) {
+        byte[] bytes = sequence.getBytes(StandardCharsets.ISO_8859_1);
+        long[] counts = new long[COUNTS];
+        KERNEL.count(bytes, 0, bytes.length, counts);
+        return counts;
+    }
+
+    /**
+     * Fraction of G and C bases in the sequence, case-insensitive.
+     */
+    public static double gcContent(String sequence) {
+        if (sequence.isEmpty()) {
+            return 0;
+        }
+        long[] counts = count(sequence);
+        return (double) (counts[G] + counts[C]) / sequence.length();
+    }
+
+    public static String getKernelName() {
+        return KERNEL == SCALAR ? "scalar" : "vector";
+    }
+
+    static Kernel scalarKernel() {
+        return SCALAR;
+    }
+
+    static Kernel kernel() {
+        return KERNEL;
+    }
+
+    private static Kernel loadKernel() {
+        if (!"scalar".equals(System.getProperty("genomebrowser.kernel"))) {
+            try {
+                // Loaded by name so the class only links when the incubator module is present
+                return (Kernel) Class.forName("GenomeBrowser.VectorBaseCounter").getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                // jdk.incubator.vector is not available, use the scalar loop
+            }
+        }
+        return SCALAR;
+    }
+
+    /**
+     * One table lookup per byte, with the counts kept in locals.
+     */
+    static final class ScalarKernel implements Kernel {
+
+        private static final byte[] SLOT = new byte[256];
+
+        static {
+            Arrays.fill(SLOT, (byte) OTHER);
+            for (char c : "Aa".toCharArray()) {
+                SLOT[c] = A;
+            }
+            for (char c : "Cc".toCharArray()) {
+                SLOT[c] = C;
+            }
+            for (char c : "Gg".toCharArray()) {
+                SLOT[c] = G;
+            }
+            for (char c : "TtUu".toCharArray()) {
+                SLOT[c] = T;
+            }
+            for (char c : "Nn".toCharArray()) {
+                SLOT[c] = N;
+            }
+        }
+
+        @Override
+        public void count(byte[] bytes, int from, int to, long[] counts) {
+            long[] local = new long[OTHER + 1];
+            long softMasked = 0;
+            for (int i = from; i < to; i++) {
+                byte b = bytes[i];
+                local[SLOT[b & 0xFF]]++;
+                if (b >= 'a' && b <= 'z') {
+                    softMasked++;
+                }
+            }
+            for (int slot = 0; slot <= OTHER; slot++) {
+                counts[slot] += local[slot];
+            }
+            counts[SOFT_MASKED] += softMasked;
+        }
+    }
+}
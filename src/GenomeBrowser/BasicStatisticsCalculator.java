@@ -6,78 +6,48 @@ import java.util.*;
 public class BasicStatisticsCalculator {
 
     public AssemblyMetrics calculateAssemblyMetrics(String fastaFilePath) {
-        List<Integer> contigLengths = new ArrayList<>();
-        int currentLength = 0;
-        int totalLength = 0;
-        int largestContig = 0;
-
-        try (BufferedReader br = new BufferedReader(new FileReader(fastaFilePath))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                if (line.startsWith(">")) {
-                    if (currentLength > 0) {
-                        contigLengths.add(currentLength);
-                        totalLength += currentLength;
-                        if (currentLength > largestContig) {
-                            largestContig = currentLength;
-                        }
-                        currentLength = 0;
-                    }
-                } else {
-                    currentLength += line.trim().length();
-                }
-            }
-            if (currentLength > 0) {
-                contigLengths.add(currentLength);
-                totalLength += currentLength;
-                if (currentLength > largestContig) {
-                    largestContig = currentLength;
-                }
-            }
+        try {
+            return new FastaIngestor().ingest(fastaFilePath).getMetrics();
         } catch (IOException e) {
             e.printStackTrace();
             return new AssemblyMetrics(0, 0, 0, 0, 0);
         }
+    }
+
+    // Metrics from a record table that has already been read (see FastaDataset)
+    public AssemblyMetrics calculateAssemblyMetrics(long[] recordLengths) {
+        long[] contigLengths = Arrays.stream(recordLengths).filter(length -> length > 0).toArray();
+        long totalLength = 0;
+        long largestContig = 0;
+
+        for (long length : contigLengths) {
+            totalLength += length;
+            if (length > largestContig) {
+                largestContig = length;
+            }
+        }
 
-        int totalContigs = contigLengths.size();
+        int totalContigs = contigLengths.length;
         double averageLength = totalContigs > 0 ? (double) totalLength / totalContigs : 0;
-        int n50 = calculateN50(contigLengths, totalLength);
+        long n50 = calculateN50(contigLengths, totalLength);
 
         return new AssemblyMetrics(totalContigs, totalLength, largestContig, averageLength, n50);
     }
 
-    private int calculateN50(List<Integer> contigLengths, int totalLength) {
-        if (contigLengths.isEmpty()) return 0;
+    private long calculateN50(long[] contigLengths, long totalLength) {
+        if (contigLengths.length == 0) return 0;
 
-        contigLengths.sort(Collections.reverseOrder());
-        int halfLength = totalLength / 2;
-        int cumulativeLength = 0;
+        // Ascending sort, walked from the largest contig down
+        Arrays.sort(contigLengths);
+        long halfLength = totalLength / 2;
+        long cumulativeLength = 0;
 
-        for (int length : contigLengths) {
-            cumulativeLength += length;
+        for (int i = contigLengths.length - 1; i >= 0; i--) {
+            cumulativeLength += contigLengths[i];
             if (cumulativeLength >= halfLength) {
-                return length;
+                return contigLengths[i];
             }
         }
         return 0;
     }
 }
-
-// Helper class to store metrics
-class AssemblyMetrics {
-    int totalContigs;
-    int totalLength;
-    int largestContig;
-    double averageLength;
-    int n50;
-
-    public AssemblyMetrics(int totalContigs, int totalLength, int largestContig, double averageLength, int n50) {
-        this.totalContigs = totalContigs;
-        this.totalLength = totalLength;
-        this.largestContig = largestContig;
-        this.averageLength = averageLength;
-        this.n50 = n50;
-    }
-}
-
-
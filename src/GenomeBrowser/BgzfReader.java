@@ -0,0 +1,290 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package GenomeBrowser;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.IntStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reader for BGZF files (blocked gzip as written by bgzip). Every block is an
+ * independent gzip member of at most 64 KB, so blocks can be inflated in
+ * parallel for sequential reads and individually for random access. Block
+ * positions come from the ".gzi" sidecar when there is one; otherwise they
+ * are found by walking the block headers, which only touches a few bytes per
+ * block.
+ *
+ * @author davidoluwasusi
+ */
+public class BgzfReader implements ByteSource {
+
+    // Blocks inflated together by one sequential-read batch (about 4 MB)
+    private static final int BATCH_BLOCKS = 64;
+
+    private final MappedFastaReader compressed;
+    // Block i spans compressedStarts[i]..compressedStarts[i + 1] in the file and
+    // uncompressedStarts[i]..uncompressedStarts[i + 1] in the inflated data
+    private final long[] compressedStarts;
+    private final long[] uncompressedStarts;
+    private final int blockCount;
+
+    private int cachedBlock = -1;
+    private byte[] cachedBytes;
+
+    public BgzfReader(String path) throws IOException {
+        compressed = new MappedFastaReader(path);
+
+        long[][] starts = readGzi(path + ".gzi");
+        long[] cStarts = starts[0];
+        long[] uStarts = starts[1];
+        int count = cStarts.length;
+
+        // Walk from the last known block to the end of the file
+        long c = cStarts[count - 1];
+        long u = uStarts[count - 1];
+        count--;
+        while (c < compressed.size()) {
+            if (count + 1 >= cStarts.length) {
+                cStarts = Arrays.copyOf(cStarts, cStarts.length * 2 + 2);
+                uStarts = Arrays.copyOf(uStarts, uStarts.length * 2 + 2);
+            }
+            cStarts[count] = c;
+            uStarts[count] = u;
+            count++;
+            long blockSize = blockSize(c);
+            u += readIntLE(c + blockSize - 4) & 0xFFFFFFFFL;
+            c += blockSize;
+        }
+        cStarts = Arrays.copyOf(cStarts, count + 1);
+        uStarts = Arrays.copyOf(uStarts, count + 1);
+        cStarts[count] = c;
+        uStarts[count] = u;
+
+        compressedStarts = cStarts;
+        uncompressedStarts = uStarts;
+        blockCount = count;
+    }
+
+    /**
+     * True when the file starts with a gzip header carrying the BGZF "BC"
+     * extra subfield.
+     */
+    public static boolean isBgzf(byte[] header, int length) {
+        if (length < 18 || (header[0] & 0xFF) != 0x1f || (header[1] & 0xFF) != 0x8b || (header[3] & 4) == 0) {
+            return false;
+        }
+        int xlen = (header[10] & 0xFF) | (header[11] & 0xFF) << 8;
+        for (int i = 12; i + 4 <= Math.min(length, 12 + xlen); ) {
+            int subfieldLength = (header[i + 2] & 0xFF) | (header[i + 3] & 0xFF) << 8;
+            if (header[i] == 'B' && header[i + 1] == 'C' && subfieldLength == 2) {
+                return true;
+            }
+            i += 4 + subfieldLength;
+        }
+        return false;
+    }
+
+    @Override
+    public long size() {
+        return uncompressedStarts[blockCount];
+    }
+
+    @Override
+    public void read(long offset, byte[] dst, int dstOffset, int length) throws IOException {
+        if (offset < 0 || offset + length > size()) {
+            throw new IOException("Read past end of BGZF data at " + offset);
+        }
+        int block = blockContaining(offset);
+        while (length > 0) {
+            byte[] bytes = cachedBlock(block);
+            int from = (int) (offset - uncompressedStarts[block]);
+            int count = Math.min(length, bytes.length - from);
+            System.arraycopy(bytes, from, dst, dstOffset, count);
+            offset += count;
+            dstOffset += count;
+            length -= count;
+            block++;
+        }
+    }
+
+    /**
+     * Sequential stream over the inflated data. Batches of blocks are inflated
+     * in parallel, and the next batch is inflated while the current one is read.
+     */
+    public InputStream openStream() {
+        return new InputStream() {
+            private int nextBlock;
+            private CompletableFuture<byte[]> nextBatch = inflateBatchAsync(0);
+            private byte[] batch = new byte[0];
+            private int position;
+
+            @Override
+            public int read() throws IOException {
+                byte[] one = new byte[1];
+                return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                while (position == batch.length) {
+                    if (nextBatch == null) {
+                        return -1;
+                    }
+                    try {
+                        batch = nextBatch.join();
+                    } catch (CompletionException e) {
+                        throw new IOException("Corrupt BGZF block", e.getCause());
+                    }
+                    position = 0;
+                    nextBlock += BATCH_BLOCKS;
+                    nextBatch = nextBlock < blockCount ? inflateBatchAsync(nextBlock) : null;
+                }
+                int count = Math.min(len, batch.length - position);
+                System.arraycopy(batch, position, b, off, count);
+                position += count;
+                return count;
+            }
+        };
+    }
+
+    private CompletableFuture<byte[]> inflateBatchAsync(int firstBlock) {
+        int lastBlock = Math.min(blockCount, firstBlock + BATCH_BLOCKS);
+        return CompletableFuture.supplyAsync(() -> {
+            byte[][] blocks = new byte[lastBlock - firstBlock][];
+            IntStream.range(firstBlock, lastBlock).parallel().forEach(block -> {
+                try {
+                    blocks[block - firstBlock] = inflate(block);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            byte[] joined = new byte[(int) (uncompressedStarts[lastBlock] - uncompressedStarts[firstBlock])];
+            int position = 0;
+            for (byte[] block : blocks) {
+                System.arraycopy(block, 0, joined, position, block.length);
+                position += block.length;
+            }
+            return joined;
+        });
+    }
+
+    private synchronized byte[] cachedBlock(int block) throws IOException {
+        if (block != cachedBlock) {
+            cachedBytes = inflate(block);
+            cachedBlock = block;
+        }
+        return cachedBytes;
+    }
+
+    private byte[] inflate(int block) throws IOException {
+        long start = compressedStarts[block];
+        int headerLength = 12 + readShortLE(start + 10);
+        int dataLength = (int) (compressedStarts[block + 1] - start) - headerLength - 8;
+        byte[] input = new byte[dataLength];
+        compressed.read(start + headerLength, input, 0, dataLength);
+
+        byte[] output = new byte[(int) (uncompressedStarts[block + 1] - uncompressedStarts[block])];
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(input);
+            int inflated = 0;
+            while (inflated < output.length && !inflater.finished()) {
+                int count = inflater.inflate(output, inflated, output.length - inflated);
+                if (count == 0 && inflater.needsInput()) {
+                    break;
+                }
+                inflated += count;
+            }
+            if (inflated != output.length) {
+                throw new IOException("Truncated BGZF block at offset " + start);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt BGZF block at offset " + start, e);
+        } finally {
+            inflater.end();
+        }
+        return output;
+    }
+
+    private int blockContaining(long offset) {
+        int low = 0;
+        int high = blockCount - 1;
+        int found = 0;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (uncompressedStarts[mid] <= offset) {
+                found = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return found;
+    }
+
+    private long blockSize(long offset) throws IOException {
+        if ((compressed.get(offset) & 0xFF) != 0x1f || (compressed.get(offset + 1) & 0xFF) != 0x8b) {
+            throw new IOException("Not a BGZF block at offset " + offset);
+        }
+        int xlen = readShortLE(offset + 10);
+        for (long i = offset + 12; i + 4 <= offset + 12 + xlen; ) {
+            int subfieldLength = readShortLE(i + 2);
+            if (compressed.get(i) == 'B' && compressed.get(i + 1) == 'C' && subfieldLength == 2) {
+                return readShortLE(i + 4) + 1;
+            }
+            i += 4 + subfieldLength;
+        }
+        throw new IOException("Missing BGZF block size at offset " + offset);
+    }
+
+    private int readShortLE(long offset) {
+        return (compressed.get(offset) & 0xFF) | (compressed.get(offset + 1) & 0xFF) << 8;
+    }
+
+    private int readIntLE(long offset) {
+        return readShortLE(offset) | readShortLE(offset + 2) << 16;
+    }
+
+    /**
+     * Block starts from a .gzi sidecar: a little-endian entry count followed
+     * by (compressed, uncompressed) offset pairs, not listing the first block.
+     */
+    private static long[][] readGzi(String gziPath) {
+        File gzi = new File(gziPath);
+        if (gzi.isFile()) {
+            try {
+                byte[] raw = Files.readAllBytes(Paths.get(gziPath));
+                ByteBuffer buffer = ByteBuffer.wrap(raw).order(ByteOrder.LITTLE_ENDIAN);
+                int entries = Math.toIntExact(buffer.getLong());
+                long[] cStarts = new long[entries + 1];
+                long[] uStarts = new long[entries + 1];
+                for (int i = 1; i <= entries; i++) {
+                    cStarts[i] = buffer.getLong();
+                    uStarts[i] = buffer.getLong();
+                }
+                return new long[][]{cStarts, uStarts};
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Ignoring unreadable BGZF index " + gziPath + ": " + e.getMessage());
+            }
+        }
+        return new long[][]{new long[1], new long[1]};
+    }
+
+    @Override
+    public void close() throws IOException {
+        compressed.close();
+    }
+}
@@ -0,0 +1,28 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package GenomeBrowser;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Random access to the (uncompressed) bytes of a sequence file, whether it
+ * is a plain mapped file or a BGZF file read block by block.
+ *
+ * @author davidoluwasusi
+ */
+public interface ByteSource extends Closeable {
+
+    /**
+     * Number of uncompressed bytes.
+     */
+    long size();
+
+    /**
+     * Copies {@code length} bytes starting at the uncompressed {@code offset}
+     * into {@code dst}.
+     */
+    void read(long offset, byte[] dst, int dstOffset, int length) throws IOException;
+}
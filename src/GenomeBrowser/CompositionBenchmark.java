@@ -0,0 +1,78 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package GenomeBrowser;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * Throughput of the composition kernels against the per-character loops they
+ * replaced (the explorer's toCharArray loop and the viewer's chars() stream).
+ * Run with:
+ * <pre>
+ * java --add-modules jdk.incubator.vector -cp build/classes GenomeBrowser.CompositionBenchmark [MB]
+ * </pre>
+ *
+ * @author davidoluwasusi
+ */
+public class CompositionBenchmark {
+
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) {
+        int megabytes = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        byte[] bytes = randomSequence(megabytes << 20);
+        String text = new String(bytes, StandardCharsets.ISO_8859_1);
+
+        System.out.println("Kernel in use: " + BaseCounter.getKernelName());
+        report("toCharArray loop", bytes.length, () -> {
+            long gc = 0;
+            for (char c : text.toCharArray()) {
+                if (c == 'G' || c == 'C') {
+                    gc++;
+                }
+            }
+            return gc;
+        });
+        report("chars() stream", bytes.length,
+                () -> text.chars().filter(ch -> ch == 'G' || ch == 'C').count());
+        report("scalar kernel", bytes.length, () -> gc(BaseCounter.scalarKernel(), bytes));
+        if (BaseCounter.kernel() != BaseCounter.scalarKernel()) {
+            report("vector kernel", bytes.length, () -> gc(BaseCounter.kernel(), bytes));
+        }
+    }
+
+    private interface Workload {
+        long run();
+    }
+
+    private static void report(String name, long size, Workload workload) {
+        long result = 0;
+        long best = Long.MAX_VALUE;
+        // The first rounds double as warm-up; the best round is reported
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            result = workload.run();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        System.out.printf("%-18s %7.2f GB/s  (G+C = %d)%n", name, size / (double) best, result);
+    }
+
+    private static long gc(BaseCounter.Kernel kernel, byte[] bytes) {
+        long[] counts = new long[BaseCounter.COUNTS];
+        kernel.count(bytes, 0, bytes.length, counts);
+        return counts[BaseCounter.G] + counts[BaseCounter.C];
+    }
+
+    private static byte[] randomSequence(int size) {
+        byte[] alphabet = "ACGTACGTACGTNacgt\n".getBytes(StandardCharsets.ISO_8859_1);
+        byte[] bytes = new byte[size];
+        Random random = new Random(42);
+        for (int i = 0; i < size; i++) {
+            bytes[i] = alphabet[random.nextInt(alphabet.length)];
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,599 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package GenomeBrowser;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * GC, N and soft-masked content of every scaffold in fixed windows, kept as
+ * a zoom pyramid: level 0 has one window per {@link #WINDOW} bases and every
+ * further level merges {@link #REDUCTION} windows of the level below. Each
+ * window stores counts rather than percentages, so merged windows and the
+ * per-pixel sums of a view stay exact.
+ *
+ * The windows are computed with {@link BaseCounter} while the scaffolds are
+ * streamed from the file in bounded pieces, several scaffolds at a time; no
+ * sequence is held in memory. The result is saved as a ".gbcomp" sidecar
+ * next to the FASTA file (see {@link FastaStatsCache} for where and when a
+ * sidecar is used). Layout (big-endian):
+ * <pre>
+ * int magic, int version
+ * long size, long lastModified, long fingerprint, int pathLength, byte[] path (UTF-8)
+ * int window, int scaffoldCount
+ * per scaffold: int nameLength, byte[] name (UTF-8), long length, int windows,
+ *               int[] gc, int[] n, int[] softMasked
+ * int magic
+ * </pre>
+ *
+ * @author davidoluwasusi
+ */
+public final class CompositionTrack {
+
+    // Metrics
+    public static final int GC = 0;
+    public static final int N = 1;
+    public static final int SOFT_MASKED = 2;
+
+    public static final int WINDOW = 1024;
+    public static final int REDUCTION = 4;
+
+    private static final String[] METRIC_NAMES = {"GC", "N", "Soft-masked"};
+    private static final int MAGIC = 0x4742434D; // "GBCM"
+    private static final int VERSION = 1;
+    private static final String SUFFIX = ".gbcomp";
+
+    private static final ExecutorService LOADER = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "composition-loader");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static final Map<String, Entry> TRACKS = new ConcurrentHashMap<>();
+
+    private static final class Entry {
+
+        final long size;
+        final long lastModified;
+        final CompletableFuture<CompositionTrack> track;
+
+        Entry(File file, CompletableFuture<CompositionTrack> track) {
+            this.size = file.length();
+            this.lastModified = file.lastModified();
+            this.track = track;
+        }
+
+        boolean isCurrent(File file) {
+            return size == file.length() && lastModified == file.lastModified()
+                    && !track.isCompletedExceptionally();
+        }
+    }
+
+    private final String path;
+    // In file order
+    private final Map<String, Scaffold> scaffolds;
+
+    private CompositionTrack(String path, Map<String, Scaffold> scaffolds) {
+        this.path = path;
+        this.scaffolds = Collections.unmodifiableMap(scaffolds);
+    }
+
+    /**
+     * Windows of one scaffold. Coordinates are 0-based; window w of a level
+     * covers [w * windowSize, (w + 1) * windowSize), the last one is cut at
+     * the end of the scaffold.
+     */
+    public static final class Scaffold {
+
+        private final String name;
+        private final long length;
+        // Level 0, [metric][window]; a window holds at most WINDOW bases
+        private final int[][] base;
+        // Levels 1 and up, [metric][level - 1][window]; long since the top
+        // level sums the whole scaffold, which can pass 2^31 bases
+        private final long[][][] reduced;
+
+        Scaffold(String name, long length, int[] gc, int[] n, int[] softMasked) {
+            this.name = name;
+            this.length = length;
+            this.base = new int[][]{gc, n, softMasked};
+            this.reduced = new long[][][]{levels(gc), levels(n), levels(softMasked)};
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getLength() {
+            return length;
+        }
+
+        public int getLevelCount() {
+            return reduced[GC].length + 1;
+        }
+
+        public long getWindowSize(int level) {
+            long size = WINDOW;
+            for (int i = 0; i < level; i++) {
+                size *= REDUCTION;
+            }
+            return size;
+        }
+
+        public int getWindowCount(int level) {
+            return level == 0 ? base[GC].length : reduced[GC][level - 1].length;
+        }
+
+        /**
+         * Coarsest level whose windows are no wider than {@code basesPerPixel};
+         * level 0 when a pixel is narrower than a window.
+         */
+        public int selectLevel(double basesPerPixel) {
+            int level = 0;
+            while (level + 1 < getLevelCount() && getWindowSize(level + 1) <= basesPerPixel) {
+                level++;
+            }
+            return level;
+        }
+
+        /**
+         * Value of a metric over windows [from, to) of a level, as a fraction:
+         * GC of the bases that are not N, N and soft-masked of all bases.
+         * NaN when there are no such bases.
+         */
+        public double getFraction(int metric, int level, int from, int to) {
+            long windowSize = getWindowSize(level);
+            long bases = Math.min(length, to * windowSize) - from * windowSize;
+            long count = sum(metric, level, from, to);
+            if (metric == GC) {
+                bases -= sum(N, level, from, to);
+            }
+            return bases <= 0 ? Double.NaN : (double) count / bases;
+        }
+
+        /**
+         * Value of a metric over the whole scaffold.
+         */
+        public double getFraction(int metric) {
+            int top = getLevelCount() - 1;
+            return getFraction(metric, top, 0, getWindowCount(top));
+        }
+
+        /**
+         * Fills one value per pixel column; column c covers the bases
+         * [viewStart + c * basesPerPixel, viewStart + (c + 1) * basesPerPixel)
+         * and sums the windows it touches at the level picked for that scale,
+         * so each column costs at most REDUCTION + 1 windows. Columns past the
+         * end of the scaffold get NaN.
+         */
+        public void fill(int metric, double viewStart, double basesPerPixel, float[] values) {
+            int level = selectLevel(basesPerPixel);
+            double windowSize = getWindowSize(level);
+            int windows = getWindowCount(level);
+            for (int column = 0; column < values.length; column++) {
+                double from = viewStart + column * basesPerPixel;
+                int first = (int) Math.min(windows, Math.max(0, from / windowSize));
+                int last = (int) Math.min(windows, Math.ceil((from + basesPerPixel) / windowSize));
+                values[column] = from >= length ? Float.NaN
+                        : (float) getFraction(metric, level, first, Math.max(first + 1, last));
+            }
+        }
+
+        /**
+         * Levels 1 and up of one metric, each merging REDUCTION windows of
+         * the level below, until a single window is left.
+         */
+        private static long[][] levels(int[] base) {
+            List<long[]> levels = new ArrayList<>();
+            long[] below = null;
+            for (int size = base.length; size > 1; size = below.length) {
+                long[] level = new long[(size + REDUCTION - 1) / REDUCTION];
+                for (int i = 0; i < size; i++) {
+                    level[i / REDUCTION] += below == null ? base[i] : below[i];
+                }
+                levels.add(level);
+                below = level;
+            }
+            return levels.toArray(new long[0][]);
+        }
+
+        private long sum(int metric, int level, int from, int to) {
+            long sum = 0;
+            if (level == 0) {
+                int[] values = base[metric];
+                for (int i = from; i < to; i++) {
+                    sum += values[i];
+                }
+            } else {
+                long[] values = reduced[metric][level - 1];
+                for (int i = from; i < to; i++) {
+                    sum += values[i];
+                }
+            }
+            return sum;
+        }
+    }
+
+    /**
+     * Composition of a FASTA file, shared by every panel. Read from the
+     * sidecar when it matches the file, otherwise computed in the background
+     * and saved. The index allows scanning several scaffolds in parallel;
+     * without one (plain gzip, uneven lines) the file is read once in order.
+     */
+    public static CompletableFuture<CompositionTrack> get(String fastaPath, FastaIndex index) {
+        File file = new File(fastaPath).getAbsoluteFile();
+        return TRACKS.compute(file.getPath(), (key, entry) -> {
+            if (entry != null && entry.isCurrent(file)) {
+                return entry;
+            }
+            return new Entry(file, CompletableFuture.supplyAsync(() -> {
+                CompositionTrack track = readSidecar(fastaPath);
+                if (track == null) {
+                    try {
+                        track = compute(fastaPath, index);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    track.writeSidecar();
+                }
+                return track;
+            }, LOADER));
+        }).track;
+    }
+
+    /**
+     * Scans the file; blocks until every scaffold is done.
+     */
+    public static CompositionTrack compute(String fastaPath, FastaIndex index) throws IOException {
+        if (index == null) {
+            WindowCounter counter = new WindowCounter();
+            FastaIngestor ingestor = new FastaIngestor();
+            ingestor.addBaseListener(counter);
+            ingestor.ingest(fastaPath);
+            Map<String, Scaffold> scaffolds = new LinkedHashMap<>();
+            for (Scaffold scaffold : counter.finish()) {
+                scaffolds.put(scaffold.getName(), scaffold);
+            }
+            return new CompositionTrack(fastaPath, scaffolds);
+        }
+
+        // Longest scaffolds first, so a long one does not start last and run alone
+        List<FastaIndex.Entry> entries = index.getEntries();
+        Integer[] order = new Integer[entries.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingLong((Integer i) -> entries.get(i).getLength()).reversed());
+
+        Scaffold[] results = new Scaffold[entries.size()];
+        AtomicInteger next = new AtomicInteger();
+        int threads = Math.max(1, Math.min(entries.size(), Runtime.getRuntime().availableProcessors()));
+        ExecutorService workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "composition-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<Void>> running = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                running.add(workers.submit(() -> {
+                    // One reader per thread; a BGZF reader keeps its position
+                    try (IndexedFastaReader reader = new IndexedFastaReader(fastaPath, index)) {
+                        for (int i = next.getAndIncrement(); i < order.length; i = next.getAndIncrement()) {
+                            WindowCounter counter = new WindowCounter();
+                            reader.stream(entries.get(order[i]).getName(), 0, Long.MAX_VALUE, counter);
+                            results[order[i]] = counter.finish().get(0);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<Void> worker : running) {
+                worker.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while scanning " + fastaPath, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Error scanning " + fastaPath, e.getCause());
+        } finally {
+            workers.shutdownNow();
+        }
+
+        Map<String, Scaffold> scaffolds = new LinkedHashMap<>();
+        for (Scaffold scaffold : results) {
+            scaffolds.put(scaffold.getName(), scaffold);
+        }
+        return new CompositionTrack(fastaPath, scaffolds);
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * Windows of a scaffold, or null when the file has no such scaffold.
+     */
+    public Scaffold getScaffold(String name) {
+        return scaffolds.get(name);
+    }
+
+    public Map<String, Scaffold> getScaffolds() {
+        return scaffolds;
+    }
+
+    public static String getMetricName(int metric) {
+        return METRIC_NAMES[metric];
+    }
+
+    /**
+     * Writes one metric for every scaffold as bedGraph, one line per level 0
+     * window with the value in percent. Windows without a value (GC of an
+     * all-N window) are left out.
+     */
+    public void writeBedGraph(Path out, int metric) throws IOException {
+        try (Writer writer = new BufferedWriter(Files.newBufferedWriter(out, StandardCharsets.UTF_8), 1 << 16)) {
+            writer.write("track type=bedGraph name=\"" + METRIC_NAMES[metric] + "%\" description=\""
+                    + METRIC_NAMES[metric] + " content in " + WINDOW + " bp windows\"\n");
+            StringBuilder line = new StringBuilder(128);
+            for (Scaffold scaffold : scaffolds.values()) {
+                for (int w = 0; w < scaffold.getWindowCount(0); w++) {
+                    double value = scaffold.getFraction(metric, 0, w, w + 1);
+                    if (Double.isNaN(value)) {
+                        continue;
+                    }
+                    // Hundredths of a percent, formatted by hand: String.format is slow for millions of lines
+                    long hundredths = Math.round(value * 10000);
+                    line.setLength(0);
+                    line.append(scaffold.getName()).append('\t')
+                            .append((long) w * WINDOW).append('\t')
+                            .append(Math.min(scaffold.getLength(), (w + 1L) * WINDOW)).append('\t')
+                            .append(hundredths / 100).append('.')
+                            .append((char) ('0' + hundredths / 10 % 10)).append((char) ('0' + hundredths % 10))
+                            .append('\n');
+                    writer.append(line);
+                }
+            }
+        }
+    }
+
+    /**
+     * Counts the bases of each window as they stream past; finishes a
+     * scaffold when the next header arrives.
+     */
+    private static final class WindowCounter implements FastaIngestor.BaseListener {
+
+        private final List<Scaffold> scaffolds = new ArrayList<>();
+        private final long[] counts = new long[BaseCounter.COUNTS];
+        private String name;
+        private long position;
+        private int windows;
+        private int[] gc = new int[16];
+        private int[] n = new int[16];
+        private int[] softMasked = new int[16];
+
+        @Override
+        public void onHeader(String header) {
+            finishScaffold();
+            name = FastaDataset.idOf(header);
+            position = 0;
+            windows = 0;
+        }
+
+        @Override
+        public void onBases(byte[] buffer, int from, int to) {
+            while (from < to) {
+                // Split the piece at window boundaries
+                int piece = (int) Math.min(to - from, WINDOW - position % WINDOW);
+                BaseCounter.count(buffer, from, from + piece, counts);
+                from += piece;
+                position += piece;
+                if (position % WINDOW == 0) {
+                    finishWindow();
+                }
+            }
+        }
+
+        List<Scaffold> finish() {
+            finishScaffold();
+            name = null;
+            return scaffolds;
+        }
+
+        private void finishWindow() {
+            if (windows == gc.length) {
+                gc = Arrays.copyOf(gc, windows * 2);
+                n = Arrays.copyOf(n, windows * 2);
+                softMasked = Arrays.copyOf(softMasked, windows * 2);
+            }
+            gc[windows] = (int) (counts[BaseCounter.G] + counts[BaseCounter.C]);
+            n[windows] = (int) counts[BaseCounter.N];
+            softMasked[windows++] = (int) counts[BaseCounter.SOFT_MASKED];
+            Arrays.fill(counts, 0);
+        }
+
+        private void finishScaffold() {
+            if (name == null) {
+                return;
+            }
+            if (position % WINDOW != 0 || windows == 0) {
+                finishWindow(); // the last, shorter window
+            }
+            scaffolds.add(new Scaffold(name, position, Arrays.copyOf(gc, windows), Arrays.copyOf(n, windows),
+                    Arrays.copyOf(softMasked, windows)));
+        }
+    }
+
+    private static CompositionTrack readSidecar(String fastaPath) {
+        for (File sidecar : FastaStatsCache.sidecarFiles(fastaPath, SUFFIX)) {
+            if (!sidecar.isFile()) {
+                continue;
+            }
+            try {
+                CompositionTrack track = read(sidecar, fastaPath);
+                if (track != null) {
+                    return track;
+                }
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Ignoring unreadable composition cache " + sidecar + ": " + e.getMessage());
+            }
+        }
+        return null;
+    }
+
+    private void writeSidecar() {
+        for (File sidecar : FastaStatsCache.sidecarFiles(path, SUFFIX)) {
+            try {
+                write(sidecar);
+                return;
+            } catch (IOException | RuntimeException e) {
+                // Try the next location
+            }
+        }
+        System.err.println("Could not write composition cache for " + path);
+    }
+
+    private static CompositionTrack read(File sidecar, String fastaPath) throws IOException {
+        File fasta = new File(fastaPath);
+        try (FileChannel channel = FileChannel.open(sidecar.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                return null;
+            }
+            long size = buffer.getLong();
+            long lastModified = buffer.getLong();
+            long fingerprint = buffer.getLong();
+            byte[] path = new byte[buffer.getInt()];
+            buffer.get(path);
+            if (size != fasta.length() || lastModified != fasta.lastModified()
+                    || !new String(path, StandardCharsets.UTF_8).equals(fasta.getAbsolutePath())
+                    || buffer.getInt() != WINDOW || fingerprint != FastaStatsCache.fingerprint(fasta)) {
+                return null;
+            }
+
+            int count = buffer.getInt();
+            Map<String, Scaffold> scaffolds = new LinkedHashMap<>();
+            for (int i = 0; i < count; i++) {
+                byte[] name = new byte[buffer.getInt()];
+                buffer.get(name);
+                long length = buffer.getLong();
+                int windows = buffer.getInt();
+                int[] gc = readInts(buffer, windows);
+                int[] n = readInts(buffer, windows);
+                int[] softMasked = readInts(buffer, windows);
+                Scaffold scaffold = new Scaffold(new String(name, StandardCharsets.UTF_8), length, gc, n, softMasked);
+                scaffolds.put(scaffold.getName(), scaffold);
+            }
+            if (buffer.getInt() != MAGIC) {
+                return null; // truncated or damaged
+            }
+            return new CompositionTrack(fastaPath, scaffolds);
+        } catch (BufferUnderflowException e) {
+            return null;
+        }
+    }
+
+    private void write(File sidecar) throws IOException {
+        File fasta = new File(path);
+        File directory = sidecar.getAbsoluteFile().getParentFile();
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create " + directory);
+        }
+
+        // Written to a temporary file first so readers never see half a sidecar
+        Path temporary = Files.createTempFile(directory.toPath(), sidecar.getName(), ".tmp");
+        try {
+            try (OutputStream file = Files.newOutputStream(temporary);
+                    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 1 << 16))) {
+                byte[] fastaPath = fasta.getAbsolutePath().getBytes(StandardCharsets.UTF_8);
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(fasta.length());
+                out.writeLong(fasta.lastModified());
+                out.writeLong(FastaStatsCache.fingerprint(fasta));
+                out.writeInt(fastaPath.length);
+                out.write(fastaPath);
+                out.writeInt(WINDOW);
+                out.writeInt(scaffolds.size());
+                for (Scaffold scaffold : scaffolds.values()) {
+                    byte[] name = scaffold.getName().getBytes(StandardCharsets.UTF_8);
+                    out.writeInt(name.length);
+                    out.write(name);
+                    out.writeLong(scaffold.getLength());
+                    out.writeInt(scaffold.getWindowCount(0));
+                    for (int[] metric : scaffold.base) {
+                        for (int value : metric) {
+                            out.writeInt(value);
+                        }
+                    }
+                }
+                out.writeInt(MAGIC);
+            }
+            Files.move(temporary, sidecar.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    private static int[] readInts(ByteBuffer buffer, int count) {
+        int[] values = new int[count];
+        buffer.asIntBuffer().get(values);
+        buffer.position(buffer.position() + count * Integer.BYTES);
+        return values;
+    }
+
+    /**
+     * Command line export: {@code CompositionTrack <fasta> <out.bedGraph> [gc|n|masked]}.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: CompositionTrack <fasta> <out.bedGraph> [gc|n|masked]");
+            System.exit(1);
+        }
+        int metric = GC;
+        if (args.length > 2) {
+            metric = args[2].equalsIgnoreCase("n") ? N : args[2].equalsIgnoreCase("masked") ? SOFT_MASKED : GC;
+        }
+        CompositionTrack track = readSidecar(args[0]);
+        if (track == null) {
+            track = compute(args[0], FastaIndex.readSidecar(args[0]));
+            track.writeSidecar();
+        }
+        track.writeBedGraph(Paths.get(args[1]), metric);
+    }
+}
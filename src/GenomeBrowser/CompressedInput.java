@@ -0,0 +1,91 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package GenomeBrowser;
+
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Transparent handling of gzip and BGZF compressed FASTA/GFF input. The
+ * format is detected from the file content, not the name.
+ *
+ * @author davidoluwasusi
+ */
+public final class CompressedInput {
+
+    public enum Format {
+        PLAIN, GZIP, BGZF
+    }
+
+    private static final String[] COMPRESSED_SUFFIXES = {".gz", ".bgz", ".bgzf"};
+
+    private CompressedInput() {
+    }
+
+    public static Format detect(String path) throws IOException {
+        byte[] header = new byte[64];
+        int length;
+        try (InputStream in = new FileInputStream(path)) {
+            length = in.readNBytes(header, 0, header.length);
+        }
+        if (length < 2 || (header[0] & 0xFF) != 0x1f || (header[1] & 0xFF) != 0x8b) {
+            return Format.PLAIN;
+        }
+        return BgzfReader.isBgzf(header, length) ? Format.BGZF : Format.GZIP;
+    }
+
+    /**
+     * Sequential stream over the uncompressed content. BGZF input is
+     * inflated in parallel, block by block.
+     */
+    public static InputStream open(String path) throws IOException {
+        switch (detect(path)) {
+            case BGZF:
+                BgzfReader reader = new BgzfReader(path);
+                return new java.io.FilterInputStream(reader.openStream()) {
+                    @Override
+                    public void close() throws IOException {
+                        reader.close();
+                    }
+                };
+            case GZIP:
+                return new GZIPInputStream(new FileInputStream(path), 1 << 16);
+            default:
+                return new BufferedInputStream(new FileInputStream(path), 1 << 16);
+        }
+    }
+
+    /**
+     * Random access to the uncompressed content. Plain gzip has no block
+     * structure, so it can only be read sequentially.
+     */
+    public static ByteSource openRandomAccess(String path) throws IOException {
+        switch (detect(path)) {
+            case BGZF:
+                return new BgzfReader(path);
+            case GZIP:
+                throw new IOException("Random access needs an uncompressed or bgzip-compressed file: " + path);
+            default:
+                return new MappedFastaReader(path);
+        }
+    }
+
+    /**
+     * File name without a trailing compression suffix, for extension checks
+     * such as "genome.fa.gz" -> "genome.fa".
+     */
+    public static String stripCompressionSuffix(String name) {
+        String lower = name.toLowerCase();
+        for (String suffix : COMPRESSED_SUFFIXES) {
+            if (lower.endsWith(suffix)) {
+                return name.substring(0, name.length() - suffix.length());
+            }
+        }
+        return name;
+    }
+}
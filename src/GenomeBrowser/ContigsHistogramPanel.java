@@ -6,17 +6,79 @@ package GenomeBrowser;
 
 import javax.swing.*;
 import java.awt.*;
-import java.util.List;
-import java.util.ArrayList;
-import java.util.LinkedHashMap;
+import java.util.Arrays;
 import java.util.Map;
 
+/**
+ * Contig lengths, longest first. Lengths are sorted once in the background;
+ * when there are more contigs than fit as bars, contigs are grouped by rank
+ * into one bucket per pixel column and each bucket is drawn from prefix sums,
+ * so drawing costs O(width) whatever the number of contigs. The chart is
+ * drawn off the EDT into an image that is reused until the data or the size
+ * changes.
+ */
 public class ContigsHistogramPanel extends JPanel {
 
+    // Legend entries kept for the longest contigs
+    private static final int MAX_LEGEND = 64;
+    private static final Color BAR_COLOR = new Color(70, 130, 180); // Steel Blue
+    private static final Color MEAN_COLOR = new Color(30, 80, 130);
+    private static final Font TITLE_FONT = new Font("Arial", Font.BOLD, 16);
+    private static final Font AXIS_LEGEND_FONT = new Font("Arial", Font.PLAIN, 12);
+    private static final Font N50_FONT = new Font("Arial", Font.BOLD, 14);
+
     private Map<String, Integer> contigLengths;
+    private Summary summary;
+    private final OffscreenRenderer renderer = new OffscreenRenderer(this);
+
+    /**
+     * Lengths sorted longest first, with what the painter needs precomputed.
+     */
+    private static final class Summary {
+
+        final int[] lengths;
+        // prefix[i] = total length of the i longest contigs
+        final long[] prefix;
+        final String[] topNames;
+        final int n50;
+        final int n50Rank;
+
+        Summary(Map<String, Integer> contigLengths) {
+            int count = contigLengths.size();
+            String[] names = new String[count];
+            long[] keys = new long[count];
+            int i = 0;
+            for (Map.Entry<String, Integer> entry : contigLengths.entrySet()) {
+                names[i] = entry.getKey();
+                keys[i] = (long) entry.getValue() << 32 | i;
+                i++;
+            }
+            // Length in the high half, input position in the low half
+            Arrays.sort(keys);
+            lengths = new int[count];
+            prefix = new long[count + 1];
+            topNames = new String[Math.min(count, MAX_LEGEND)];
+            for (int rank = 0; rank < count; rank++) {
+                long key = keys[count - 1 - rank];
+                lengths[rank] = (int) (key >>> 32);
+                prefix[rank + 1] = prefix[rank] + lengths[rank];
+                if (rank < topNames.length) {
+                    topNames[rank] = names[(int) key];
+                }
+            }
+
+            // N50: length of the contig at which half of the assembly is reached
+            int rank = 0;
+            while (rank < count - 1 && prefix[rank + 1] * 2 < prefix[count]) {
+                rank++;
+            }
+            n50Rank = count == 0 ? -1 : rank;
+            n50 = count == 0 ? 0 : lengths[rank];
+        }
+    }
 
     public ContigsHistogramPanel(Map<String, Integer> contigLengths) {
-        this.contigLengths = contigLengths;
+        updateData(contigLengths);
     }
 
     @Override
@@ -25,49 +87,31 @@ public class ContigsHistogramPanel extends JPanel {
         if (contigLengths == null || contigLengths.isEmpty()) {
             return;
         }
+        // Drawn off the EDT into a cached image; repaints only copy it
+        Summary data = summary;
+        int contigCount = contigLengths.size();
+        renderer.paint(g, () -> (g2d, width, height) -> render(g2d, width, height, data, contigCount));
+    }
 
-        Graphics2D g2d = (Graphics2D) g;
-        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-
-        int width = getWidth();
-        int height = getHeight();
+    private static void render(Graphics2D g2d, int width, int height, Summary data, int contigCount) {
         int padding = 60;
         int maxBarWidth = width - 250 - 2 * padding; // Space for legend
         int maxBarHeight = height - 2 * padding - 40;
 
-        // Sort contigs in descending order based on length
-        List<Map.Entry<String, Integer>> sortedContigs = new ArrayList<>(contigLengths.entrySet());
-        sortedContigs.sort((a, b) -> Integer.compare(b.getValue(), a.getValue())); // Descending order
-
-        // Get max contig length for scaling
-        int maxContigLength = sortedContigs.get(0).getValue();
-
-        // Bar settings with better spacing
-        int numBars = sortedContigs.size();
-        int barWidth = Math.max(3, maxBarWidth / (numBars * 2)); // Reduce bar width for better spacing
-        int barSpacing = barWidth / 2; // Extra spacing between bars
-        int x = padding + 40; // Start position after Y-axis
-
-        // Identify N50
-        int n50Value = calculateN50(sortedContigs);
-
-        // Create a legend mapping (A, B, C, ...) -> Contig Names
-        Map<String, String> legend = new LinkedHashMap<>();
-        char label = 'A';
-
-        for (Map.Entry<String, Integer> entry : sortedContigs) {
-            legend.put(String.valueOf(label), entry.getKey());
-            label++;
-        }
-
         // Draw Title
         g2d.setColor(Color.BLACK);
-        g2d.setFont(new Font("Arial", Font.BOLD, 16));
+        g2d.setFont(TITLE_FONT);
         g2d.drawString("Contig Lengths Histogram", width / 3, padding - 20);
 
         // Set the font for Y-Axis labels and Legend (same size)
-        Font axisLegendFont = new Font("Arial", Font.PLAIN, 12);
-        g2d.setFont(axisLegendFont);
+        g2d.setFont(AXIS_LEGEND_FONT);
+
+        if (data == null) {
+            g2d.drawString("Sorting " + String.format("%,d", contigCount) + " contigs...", padding + 40, height / 2);
+            return;
+        }
+        int numContigs = data.lengths.length;
+        int maxContigLength = Math.max(1, data.lengths[0]);
 
         // Draw Y-Axis
         g2d.drawLine(padding + 40, height - padding, padding + 40, padding);
@@ -76,75 +120,162 @@ public class ContigsHistogramPanel extends JPanel {
         // Draw Y-Axis Labels
         for (int i = 0; i <= 5; i++) {
             int y = height - padding - (i * maxBarHeight / 5);
-            int labelValue = (maxContigLength * i) / 5;
+            long labelValue = (long) maxContigLength * i / 5;
             g2d.drawString(String.valueOf(labelValue), padding - 30, y);
             g2d.drawLine(padding + 35, y, padding + 40, y); // Small tick
         }
 
-        // Draw bars
-        label = 'A';
-        for (Map.Entry<String, Integer> entry : sortedContigs) {
-            int barHeight = (int) (((double) entry.getValue() / maxContigLength) * maxBarHeight);
+        // One bar per contig while each still gets 3 pixels and some spacing
+        int barWidth = Math.max(3, maxBarWidth / (numContigs * 2));
+        int barSpacing = barWidth / 2;
+        int legendRows;
+        if (numContigs * (barWidth + barSpacing) <= maxBarWidth) {
+            drawContigBars(g2d, data, height, padding, maxBarHeight, barWidth, barSpacing);
+            legendRows = numContigs;
+        } else {
+            drawRankBuckets(g2d, data, height, padding, maxBarWidth, maxBarHeight);
+            legendRows = 0;
+        }
+
+        // Draw Legend
+        int legendX = width - 220;
+        int legendY = padding;
+        g2d.setFont(AXIS_LEGEND_FONT);
+        g2d.setColor(Color.BLACK);
+        g2d.drawString("Legend:", legendX, legendY - 10);
+
+        // Add Contig Labels to Legend, as many as fit
+        int fitting = Math.max(0, (height - legendY - 10) / 15 - 1);
+        int shown = Math.min(Math.min(legendRows, fitting), data.topNames.length);
+        for (int rank = 0; rank < shown; rank++) {
+            g2d.drawString(label(rank) + " = " + data.topNames[rank], legendX, legendY);
+            legendY += 15;
+        }
+        if (legendRows == 0) {
+            // Bucketed view: list the longest contigs by rank instead of by letter
+            shown = Math.min(Math.min(fitting, data.topNames.length), 10);
+            for (int rank = 0; rank < shown; rank++) {
+                g2d.drawString("#" + (rank + 1) + " " + data.topNames[rank] + " (" + data.lengths[rank] + ")", legendX, legendY);
+                legendY += 15;
+            }
+        }
+        if (shown < numContigs && fitting > shown) {
+            g2d.drawString(String.format("... %,d contigs in total", numContigs), legendX, legendY);
+        }
+    }
+
+    private static void drawContigBars(Graphics2D g2d, Summary data, int height, int padding,
+            int maxBarHeight, int barWidth, int barSpacing) {
+        int maxContigLength = Math.max(1, data.lengths[0]);
+        int x = padding + 40; // Start position after Y-axis
+        for (int rank = 0; rank < data.lengths.length; rank++) {
+            int barHeight = (int) (((double) data.lengths[rank] / maxContigLength) * maxBarHeight);
             int barX = x;
             int barY = height - barHeight - padding;
 
             // Color the N50 bar red, others blue
-            if (entry.getValue() == n50Value) {
-                g2d.setColor(Color.RED);
-            } else {
-                g2d.setColor(new Color(70, 130, 180)); // Steel Blue
-            }
-
+            g2d.setColor(rank == data.n50Rank ? Color.RED : BAR_COLOR);
             g2d.fillRect(barX, barY, barWidth, barHeight);
             g2d.setColor(Color.BLACK);
             g2d.drawRect(barX, barY, barWidth, barHeight);
 
             // Draw "N50" on top of the N50 bar
-            if (entry.getValue() == n50Value) {
-                g2d.setFont(new Font("Arial", Font.BOLD, 14));
+            if (rank == data.n50Rank) {
+                g2d.setFont(N50_FONT);
                 g2d.setColor(Color.RED);
                 g2d.drawString("N50", barX + barWidth / 4, barY - 5); // Positioned above the bar
             }
 
             // Draw Short Labels Under Each Bar
-            g2d.setFont(axisLegendFont);
+            g2d.setFont(AXIS_LEGEND_FONT);
             g2d.setColor(Color.BLACK);
-            g2d.drawString(String.valueOf(label), barX + barWidth / 3, height - padding + 20);
+            g2d.drawString(label(rank), barX + barWidth / 3, height - padding + 20);
 
             x += barWidth + barSpacing; // Space between bars
-            label++;
         }
+    }
 
-        // Draw Legend
-        int legendX = width - 220;
-        int legendY = padding;
+    /**
+     * One bucket per pixel column: ranks [first, last) of the sorted contigs.
+     * The bar is the longest contig of the bucket, the darker mark its mean.
+     */
+    private static void drawRankBuckets(Graphics2D g2d, Summary data, int height, int padding, int maxBarWidth,
+            int maxBarHeight) {
+        int numContigs = data.lengths.length;
+        int maxContigLength = Math.max(1, data.lengths[0]);
+        int buckets = Math.max(1, Math.min(numContigs, maxBarWidth));
+        int x0 = padding + 41;
+        int n50X = -1;
+        for (int b = 0; b < buckets; b++) {
+            int first = (int) ((long) numContigs * b / buckets);
+            int last = (int) ((long) numContigs * (b + 1) / buckets);
+            int x = x0 + (int) ((long) maxBarWidth * b / buckets);
+            int columnWidth = Math.max(1, x0 + (int) ((long) maxBarWidth * (b + 1) / buckets) - x);
+            int barHeight = (int) ((double) data.lengths[first] / maxContigLength * maxBarHeight);
+            double mean = (double) (data.prefix[last] - data.prefix[first]) / (last - first);
+            int meanHeight = (int) (mean / maxContigLength * maxBarHeight);
 
-        g2d.drawString("Legend:", legendX, legendY - 10);
+            boolean holdsN50 = data.n50Rank >= first && data.n50Rank < last;
+            g2d.setColor(holdsN50 ? Color.RED : BAR_COLOR);
+            g2d.fillRect(x, height - padding - barHeight, columnWidth, barHeight);
+            g2d.setColor(holdsN50 ? Color.RED : MEAN_COLOR);
+            g2d.fillRect(x, height - padding - meanHeight, columnWidth, Math.min(2, Math.max(1, meanHeight)));
+            if (holdsN50) {
+                n50X = x;
+            }
+        }
 
-        // Add Contig Labels to Legend
-        for (Map.Entry<String, String> entry : legend.entrySet()) {
-            g2d.drawString(entry.getKey() + " = " + entry.getValue(), legendX, legendY);
-            legendY += 15;
+        g2d.setColor(Color.BLACK);
+        g2d.drawLine(x0, height - padding, x0 + maxBarWidth, height - padding);
+        g2d.drawString("1", x0, height - padding + 20);
+        String lastRank = String.format("%,d", numContigs);
+        g2d.drawString(lastRank, x0 + maxBarWidth - g2d.getFontMetrics().stringWidth(lastRank), height - padding + 20);
+        g2d.drawString(String.format("Contigs ranked by length, %,d per column", Math.max(1, numContigs / buckets)),
+                x0 + maxBarWidth / 3, height - padding + 20);
+        if (n50X >= 0) {
+            g2d.setFont(N50_FONT);
+            g2d.setColor(Color.RED);
+            int n50Height = (int) ((double) data.n50 / maxContigLength * maxBarHeight);
+            g2d.drawString("N50", n50X, height - padding - n50Height - 5);
         }
     }
 
-// Method to calculate N50
-    private int calculateN50(List<Map.Entry<String, Integer>> sortedContigs) {
-        int totalLength = sortedContigs.stream().mapToInt(Map.Entry::getValue).sum();
-        int halfLength = totalLength / 2;
-        int cumulativeLength = 0;
-
-        for (Map.Entry<String, Integer> entry : sortedContigs) {
-            cumulativeLength += entry.getValue();
-            if (cumulativeLength >= halfLength) {
-                return entry.getValue();
-            }
+    /**
+     * Spreadsheet-style bar labels: A..Z, then AA, AB, ...
+     */
+    static String label(int index) {
+        StringBuilder label = new StringBuilder();
+        for (int i = index + 1; i > 0; i = (i - 1) / 26) {
+            label.insert(0, (char) ('A' + (i - 1) % 26));
         }
-        return 0;
+        return label.toString();
     }
 
     public void updateData(Map<String, Integer> newData) {
         this.contigLengths = newData;
-        repaint();
+        this.summary = null;
+        renderer.invalidate();
+        if (newData == null || newData.isEmpty()) {
+            return;
+        }
+        // Sorting 100k+ contigs is kept off the EDT; paint shows a note until it is done
+        new SwingWorker<Summary, Void>() {
+            @Override
+            protected Summary doInBackground() {
+                return new Summary(newData);
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    if (contigLengths == newData) {
+                        summary = get();
+                        renderer.invalidate();
+                    }
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+            }
+        }.execute();
     }
 }
@@ -0,0 +1,371 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package GenomeBrowser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable result of a single pass over a FASTA file. Every panel reads the
+ * record table and metrics from here instead of scanning the file again.
+ *
+ * @author davidoluwasusi
+ */
+public final class FastaDataset {
+
+    private final String path;
+    private final String[] headers;
+    private final long[] headerOffsets;
+    private final long[] sequenceOffsets;
+    private final long[] lengths;
+    private final long[] gcCounts;
+    private final long[] atCounts;
+    private final long[] nCounts;
+    private final long[] softMaskedCounts;
+    private final int[] lineBases;
+    private final int[] lineBytes;
+    private final boolean[] irregularLines;
+    private final Map<String, Integer> recordIndex;
+    private final AssemblyMetrics metrics;
+
+    private FastaDataset(String path, Builder builder) {
+        this(path,
+                Arrays.copyOf(builder.headers, builder.count),
+                Arrays.copyOf(builder.headerOffsets, builder.count),
+                Arrays.copyOf(builder.sequenceOffsets, builder.count),
+                Arrays.copyOf(builder.lengths, builder.count),
+                Arrays.copyOf(builder.gcCounts, builder.count),
+                Arrays.copyOf(builder.atCounts, builder.count),
+                Arrays.copyOf(builder.nCounts, builder.count),
+                Arrays.copyOf(builder.softMaskedCounts, builder.count),
+                Arrays.copyOf(builder.lineBases, builder.count),
+                Arrays.copyOf(builder.lineBytes, builder.count),
+                Arrays.copyOf(builder.irregularLines, builder.count),
+                null);
+    }
+
+    /**
+     * Wraps record arrays that are already complete, e.g. read back from a
+     * {@link FastaStatsCache} sidecar. The arrays are not copied. When
+     * {@code metrics} is null it is computed from the lengths.
+     */
+    FastaDataset(String path, String[] headers, long[] headerOffsets, long[] sequenceOffsets, long[] lengths,
+            long[] gcCounts, long[] atCounts, long[] nCounts, long[] softMaskedCounts,
+            int[] lineBases, int[] lineBytes, boolean[] irregularLines, AssemblyMetrics metrics) {
+        int count = headers.length;
+        this.path = path;
+        this.headers = headers;
+        this.headerOffsets = headerOffsets;
+        this.sequenceOffsets = sequenceOffsets;
+        this.lengths = lengths;
+        this.gcCounts = gcCounts;
+        this.atCounts = atCounts;
+        this.nCounts = nCounts;
+        this.softMaskedCounts = softMaskedCounts;
+        this.lineBases = lineBases;
+        this.lineBytes = lineBytes;
+        this.irregularLines = irregularLines;
+
+        this.recordIndex = new HashMap<>(count * 2);
+        for (int i = 0; i < count; i++) {
+            recordIndex.putIfAbsent(getId(i), i);
+        }
+        this.metrics = metrics != null ? metrics : new BasicStatisticsCalculator().calculateAssemblyMetrics(lengths);
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public int getRecordCount() {
+        return headers.length;
+    }
+
+    /**
+     * Full header line without the leading '>'.
+     */
+    public String getHeader(int record) {
+        return headers[record];
+    }
+
+    /**
+     * Record id, i.e. the header up to the first whitespace.
+     */
+    public String getId(int record) {
+        return idOf(headers[record]);
+    }
+
+    /**
+     * The id part of a header: everything up to the first whitespace.
+     */
+    public static String idOf(String header) {
+        for (int i = 0; i < header.length(); i++) {
+            if (Character.isWhitespace(header.charAt(i))) {
+                return header.substring(0, i);
+            }
+        }
+        return header;
+    }
+
+    /**
+     * Gene name, i.e. the header up to the first '|' (">GeneName|chr:start-end").
+     */
+    public String getGeneName(int record) {
+        String header = headers[record];
+        int bar = header.indexOf('|');
+        return bar < 0 ? header : header.substring(0, bar);
+    }
+
+    /**
+     * Index of the record with the given id, or -1 if it is not in the file.
+     */
+    public int indexOf(String id) {
+        Integer record = recordIndex.get(id);
+        return record == null ? -1 : record;
+    }
+
+    public long getHeaderOffset(int record) {
+        return headerOffsets[record];
+    }
+
+    public long getSequenceOffset(int record) {
+        return sequenceOffsets[record];
+    }
+
+    public long getLength(int record) {
+        return lengths[record];
+    }
+
+    public long getGcCount(int record) {
+        return gcCounts[record];
+    }
+
+    public long getAtCount(int record) {
+        return atCounts[record];
+    }
+
+    public long getNCount(int record) {
+        return nCounts[record];
+    }
+
+    public long getSoftMaskedCount(int record) {
+        return softMaskedCounts[record];
+    }
+
+    /**
+     * Bases on each full sequence line of the record (faidx LINEBASES).
+     */
+    public int getLineBases(int record) {
+        return lineBases[record];
+    }
+
+    /**
+     * Bytes on each full sequence line including the line ending (faidx LINEWIDTH).
+     */
+    public int getLineBytes(int record) {
+        return lineBytes[record];
+    }
+
+    /**
+     * True when the record's lines are not all the same length, which rules
+     * out offset arithmetic for random access.
+     */
+    public boolean hasIrregularLines(int record) {
+        return irregularLines[record];
+    }
+
+    public long getTotalGcCount() {
+        return sum(gcCounts);
+    }
+
+    public long getTotalAtCount() {
+        return sum(atCounts);
+    }
+
+    public long getTotalNCount() {
+        return sum(nCounts);
+    }
+
+    public AssemblyMetrics getMetrics() {
+        return metrics;
+    }
+
+    public List<String> getGeneNames() {
+        List<String> names = new ArrayList<>(headers.length);
+        for (int i = 0; i < headers.length; i++) {
+            names.add(getGeneName(i));
+        }
+        return names;
+    }
+
+    public Map<String, Integer> getContigLengths() {
+        Map<String, Integer> contigLengths = new LinkedHashMap<>();
+        for (int i = 0; i < headers.length; i++) {
+            contigLengths.put(getId(i), (int) Math.min(lengths[i], Integer.MAX_VALUE));
+        }
+        return contigLengths;
+    }
+
+    private static long sum(long[] values) {
+        long total = 0;
+        for (long value : values) {
+            total += value;
+        }
+        return total;
+    }
+
+    /**
+     * Growable record table filled in while the file is being read. A table
+     * built from a chunk in the middle of the file starts with a continuation
+     * record (null header) that holds the bases belonging to the record the
+     * previous chunk ended in; {@link #append} stitches the two together.
+     */
+    static final class Builder {
+
+        private int count;
+        private String[] headers = new String[64];
+        private long[] headerOffsets = new long[64];
+        private long[] sequenceOffsets = new long[64];
+        private long[] lengths = new long[64];
+        private long[] gcCounts = new long[64];
+        private long[] atCounts = new long[64];
+        private long[] nCounts = new long[64];
+        private long[] softMaskedCounts = new long[64];
+        private int[] lineBases = new int[64];
+        private int[] lineBytes = new int[64];
+        private int[] lineCounts = new int[64];
+        private boolean[] lastLineShort = new boolean[64];
+        private boolean[] irregularLines = new boolean[64];
+
+        void startRecord(String header, long headerOffset, long sequenceOffset) {
+            if (count == headers.length) {
+                grow();
+            }
+            headers[count] = header;
+            headerOffsets[count] = headerOffset;
+            sequenceOffsets[count] = sequenceOffset;
+            count++;
+        }
+
+        void startContinuation(long offset) {
+            startRecord(null, -1, offset);
+        }
+
+        boolean hasRecord() {
+            return count > 0;
+        }
+
+        void addComposition(long length, long gc, long at, long n, long softMasked) {
+            int current = count - 1;
+            lengths[current] += length;
+            gcCounts[current] += gc;
+            atCounts[current] += at;
+            nCounts[current] += n;
+            softMaskedCounts[current] += softMasked;
+        }
+
+        /**
+         * Records one finished sequence line of the current record. Every line
+         * but the last must match the first one for faidx-style indexing, so a
+         * blank line is only allowed at the end of a record.
+         */
+        void addLine(int bases, int bytes) {
+            int current = count - 1;
+            if (lineCounts[current] == 0) {
+                lineBases[current] = bases;
+                lineBytes[current] = bytes;
+            } else if (lastLineShort[current] || bases > lineBases[current]) {
+                irregularLines[current] = true;
+            }
+            lastLineShort[current] = bases < lineBases[current];
+            lineCounts[current]++;
+        }
+
+        /**
+         * Appends the records of a table built from the chunk that directly
+         * follows this one in the file.
+         */
+        void append(Builder next) {
+            int first = 0;
+            if (next.count > 0 && next.headers[0] == null) {
+                // Bases before the first header in the chunk belong to our last record
+                if (count > 0) {
+                    mergeContinuation(next);
+                }
+                first = 1;
+            }
+            for (int i = first; i < next.count; i++) {
+                if (count == headers.length) {
+                    grow();
+                }
+                headers[count] = next.headers[i];
+                headerOffsets[count] = next.headerOffsets[i];
+                sequenceOffsets[count] = next.sequenceOffsets[i];
+                lengths[count] = next.lengths[i];
+                gcCounts[count] = next.gcCounts[i];
+                atCounts[count] = next.atCounts[i];
+                nCounts[count] = next.nCounts[i];
+                softMaskedCounts[count] = next.softMaskedCounts[i];
+                lineBases[count] = next.lineBases[i];
+                lineBytes[count] = next.lineBytes[i];
+                lineCounts[count] = next.lineCounts[i];
+                lastLineShort[count] = next.lastLineShort[i];
+                irregularLines[count] = next.irregularLines[i];
+                count++;
+            }
+        }
+
+        private void mergeContinuation(Builder next) {
+            int last = count - 1;
+            addComposition(next.lengths[0], next.gcCounts[0], next.atCounts[0], next.nCounts[0],
+                    next.softMaskedCounts[0]);
+
+            int nextLines = next.lineCounts[0];
+            if (nextLines == 0) {
+                return;
+            }
+            if (lineCounts[last] == 0) {
+                lineBases[last] = next.lineBases[0];
+                lineBytes[last] = next.lineBytes[0];
+                lastLineShort[last] = next.lastLineShort[0];
+                irregularLines[last] = next.irregularLines[0];
+            } else {
+                // The continuation's lines must carry on with the same width,
+                // except that a single short line may end the record
+                boolean widthChanged = nextLines > 1
+                        ? next.lineBases[0] != lineBases[last]
+                        : next.lineBases[0] > lineBases[last];
+                irregularLines[last] |= next.irregularLines[0] || lastLineShort[last] || widthChanged;
+                lastLineShort[last] = nextLines > 1 ? next.lastLineShort[0] : next.lineBases[0] < lineBases[last];
+            }
+            lineCounts[last] += nextLines;
+        }
+
+        private void grow() {
+            int capacity = headers.length * 2;
+            headers = Arrays.copyOf(headers, capacity);
+            headerOffsets = Arrays.copyOf(headerOffsets, capacity);
+            sequenceOffsets = Arrays.copyOf(sequenceOffsets, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            gcCounts = Arrays.copyOf(gcCounts, capacity);
+            atCounts = Arrays.copyOf(atCounts, capacity);
+            nCounts = Arrays.copyOf(nCounts, capacity);
+            softMaskedCounts = Arrays.copyOf(softMaskedCounts, capacity);
+            lineBases = Arrays.copyOf(lineBases, capacity);
+            lineBytes = Arrays.copyOf(lineBytes, capacity);
+            lineCounts = Arrays.copyOf(lineCounts, capacity);
+            lastLineShort = Arrays.copyOf(lastLineShort, capacity);
+            irregularLines = Arrays.copyOf(irregularLines, capacity);
+        }
+
+        FastaDataset build(String path) {
+            return new FastaDataset(path, this);
+        }
+    }
+}
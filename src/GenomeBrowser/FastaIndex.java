@@ -0,0 +1,174 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package GenomeBrowser;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * faidx-compatible index of a FASTA file: name, length, offset of the first
+ * base, bases per line and bytes per line for every record. It is read from
+ * the ".fai" sidecar when one is present (including ones written by samtools)
+ * and otherwise built from an ingested {@link FastaDataset}.
+ *
+ * @author davidoluwasusi
+ */
+public class FastaIndex {
+
+    public static class Entry {
+
+        final String name;
+        final long length;
+        final long offset;
+        final int lineBases;
+        final int lineBytes;
+
+        Entry(String name, long length, long offset, int lineBases, int lineBytes) {
+            this.name = name;
+            this.length = length;
+            this.offset = offset;
+            this.lineBases = lineBases;
+            this.lineBytes = lineBytes;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getLength() {
+            return length;
+        }
+
+        /**
+         * File offset of base {@code position} (0-based) of this record.
+         */
+        long offsetOf(long position) {
+            if (lineBases == 0) {
+                return offset;
+            }
+            return offset + (position / lineBases) * lineBytes + position % lineBases;
+        }
+    }
+
+    private final List<Entry> entries;
+    private final Map<String, Entry> byName;
+
+    private FastaIndex(List<Entry> entries) {
+        this.entries = Collections.unmodifiableList(entries);
+        this.byName = new HashMap<>(entries.size() * 2);
+        for (Entry entry : entries) {
+            byName.putIfAbsent(entry.name, entry);
+        }
+    }
+
+    public static String indexPath(String fastaPath) {
+        return fastaPath + ".fai";
+    }
+
+    /**
+     * Reads the ".fai" sidecar of a FASTA file, or returns null when there is
+     * none or it is older than the FASTA file.
+     */
+    public static FastaIndex readSidecar(String fastaPath) {
+        File fasta = new File(fastaPath);
+        File fai = new File(indexPath(fastaPath));
+        if (!fai.isFile() || fai.lastModified() < fasta.lastModified()) {
+            return null;
+        }
+        try {
+            return read(fai.getPath());
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Ignoring unreadable FASTA index " + fai + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    public static FastaIndex read(String faiPath) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        try (LineTokenizer tokens = new LineTokenizer(Files.newInputStream(Paths.get(faiPath)))) {
+            while (tokens.nextLine()) {
+                if (tokens.lineLength() == 0) {
+                    continue;
+                }
+                if (tokens.split('\t') < 5) {
+                    throw new IOException("Malformed .fai line: " + tokens.line());
+                }
+                entries.add(new Entry(
+                        tokens.field(0),
+                        tokens.parseLong(1),
+                        tokens.parseLong(2),
+                        tokens.parseInt(3),
+                        tokens.parseInt(4)
+                ));
+            }
+        }
+        return new FastaIndex(entries);
+    }
+
+    /**
+     * Builds the index from an ingested file. Fails, as samtools faidx does,
+     * when a record's lines are not all the same length.
+     */
+    public static FastaIndex fromDataset(FastaDataset dataset) throws IOException {
+        List<Entry> entries = new ArrayList<>(dataset.getRecordCount());
+        for (int i = 0; i < dataset.getRecordCount(); i++) {
+            if (dataset.hasIrregularLines(i)) {
+                throw new IOException("Different line length in sequence '" + dataset.getId(i) + "'");
+            }
+            entries.add(new Entry(
+                    dataset.getId(i),
+                    dataset.getLength(i),
+                    dataset.getSequenceOffset(i),
+                    dataset.getLineBases(i),
+                    dataset.getLineBytes(i)
+            ));
+        }
+        return new FastaIndex(entries);
+    }
+
+    public void write(String faiPath) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(Paths.get(faiPath), StandardCharsets.US_ASCII)) {
+            for (Entry entry : entries) {
+                writer.write(entry.name + "\t" + entry.length + "\t" + entry.offset + "\t"
+                        + entry.lineBases + "\t" + entry.lineBytes);
+                writer.newLine();
+            }
+        }
+    }
+
+    public List<Entry> getEntries() {
+        return entries;
+    }
+
+    public Entry getEntry(String name) {
+        return byName.get(name);
+    }
+
+    public List<String> getNames() {
+        List<String> names = new ArrayList<>(entries.size());
+        for (Entry entry : entries) {
+            names.add(entry.name);
+        }
+        return names;
+    }
+
+    public Map<String, Integer> getContigLengths() {
+        Map<String, Integer> contigLengths = new LinkedHashMap<>();
+        for (Entry entry : entries) {
+            contigLengths.put(entry.name, (int) Math.min(entry.length, Integer.MAX_VALUE));
+        }
+        return contigLengths;
+    }
+}
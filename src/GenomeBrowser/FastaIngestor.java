@@ -0,0 +1,326 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package GenomeBrowser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Reads a FASTA file exactly once and builds a {@link FastaDataset} from it.
+ * The file is memory-mapped and scanned as raw ASCII bytes; strings are only
+ * created for headers, and for sequence lines when a listener asks for them.
+ * Gzip and BGZF files are scanned from the decompressed stream.
+ * Panels that also need the raw text (the sequence viewer, the scaffold store)
+ * register a {@link RecordListener} or {@link BaseListener} and are fed from
+ * the same pass instead of opening the file themselves.
+ *
+ * An ingestor runs one pass at a time; create a new one per file.
+ *
+ * @author davidoluwasusi
+ */
+public class FastaIngestor {
+
+    /**
+     * Receives the text of the file while it is being ingested. Called on the
+     * thread that runs {@link #ingest(String)}.
+     */
+    public interface RecordListener {
+
+        /**
+         * @param header the header line without the leading '>', trimmed
+         */
+        void onHeader(String header);
+
+        /**
+         * @param line one sequence line with surrounding whitespace removed
+         */
+        void onSequenceLine(String line);
+    }
+
+    /**
+     * Receives sequence bytes without any per-line objects, for consumers
+     * that pack or count bases themselves.
+     */
+    public interface BaseListener {
+
+        /**
+         * @param header the header line without the leading '>', trimmed
+         */
+        void onHeader(String header);
+
+        /**
+         * @param buffer scratch buffer, only valid for the duration of the call
+         * @param from first sequence byte (inclusive)
+         * @param to last sequence byte (exclusive); the range holds no whitespace
+         */
+        void onBases(byte[] buffer, int from, int to);
+    }
+
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final List<RecordListener> listeners = new ArrayList<>();
+    private final List<BaseListener> baseListeners = new ArrayList<>();
+
+    // Per-pass state
+    private FastaDataset.Builder records;
+    private long position;
+    private boolean atLineStart;
+    private boolean inHeader;
+    private long headerOffset;
+    private byte[] headerBytes = new byte[256];
+    private int headerLength;
+    private final long[] composition = new long[BaseCounter.COUNTS];
+    private long sequenceLength;
+    private long lineStart;
+    private int lineBases;
+    private boolean countBases = true;
+    private final StringBuilder lineBuilder = new StringBuilder();
+
+    public void addListener(RecordListener listener) {
+        listeners.add(listener);
+    }
+
+    public void addBaseListener(BaseListener listener) {
+        baseListeners.add(listener);
+    }
+
+    public FastaDataset ingest(String fastaFilePath) throws IOException {
+        // A file seen before is answered from its stats sidecar; listeners
+        // still get their pass over the text, but nothing is counted
+        FastaDataset cached = FastaStatsCache.read(fastaFilePath);
+        if (cached != null) {
+            if (!listeners.isEmpty() || !baseListeners.isEmpty()) {
+                countBases = false;
+                try (InputStream in = CompressedInput.open(fastaFilePath)) {
+                    scanStream(in);
+                }
+            }
+            return cached;
+        }
+
+        FastaDataset dataset = scan(fastaFilePath);
+        FastaStatsCache.write(dataset);
+        return dataset;
+    }
+
+    private FastaDataset scan(String fastaFilePath) throws IOException {
+        if (CompressedInput.detect(fastaFilePath) != CompressedInput.Format.PLAIN) {
+            // Compressed input is read in order from the decompressor; for BGZF
+            // the blocks are inflated in parallel ahead of this scan
+            try (InputStream in = CompressedInput.open(fastaFilePath)) {
+                return scanStream(in).build(fastaFilePath);
+            }
+        }
+        try (MappedFastaReader reader = new MappedFastaReader(fastaFilePath)) {
+            if (listeners.isEmpty() && baseListeners.isEmpty()) {
+                return ParallelFastaScanner.scan(reader).build(fastaFilePath);
+            }
+
+            // Listeners need the file in order, so they are fed on this thread
+            // while the record table is counted in parallel on the other cores
+            ForkJoinTask<FastaDataset.Builder> recordTable = ParallelFastaScanner.fork(reader);
+            countBases = false;
+            scanRange(reader, 0, reader.size(), false);
+            return recordTable.join().build(fastaFilePath);
+        }
+    }
+
+    /**
+     * Scans {@code [start, end)} of a mapped file into a record table. Both
+     * ends must fall on line starts. A range that does not start the file
+     * opens with a continuation record for the bases of the record in progress.
+     */
+    FastaDataset.Builder scanRange(MappedFastaReader reader, long start, long end, boolean continuation) {
+        reset(start);
+        if (continuation) {
+            records.startContinuation(start);
+        }
+        byte[] scratch = new byte[(int) Math.max(1, Math.min(BUFFER_SIZE, end - start))];
+        long offset = start;
+        while (offset < end) {
+            // Bulk copies out of the mapping keep the scan loop on a plain array
+            int count = (int) Math.min(scratch.length, end - offset);
+            reader.read(offset, scratch, 0, count);
+            feed(scratch, count);
+            offset += count;
+        }
+        finish();
+        return records;
+    }
+
+    private FastaDataset.Builder scanStream(InputStream in) throws IOException {
+        reset(0);
+        byte[] scratch = new byte[BUFFER_SIZE];
+        int read;
+        while ((read = in.readNBytes(scratch, 0, scratch.length)) > 0) {
+            feed(scratch, read);
+        }
+        finish();
+        return records;
+    }
+
+    private void reset(long start) {
+        records = new FastaDataset.Builder();
+        position = start;
+        atLineStart = true;
+        inHeader = false;
+        headerLength = 0;
+        Arrays.fill(composition, 0);
+        sequenceLength = 0;
+        lineStart = start;
+        lineBases = 0;
+        lineBuilder.setLength(0);
+    }
+
+    private void feed(byte[] buffer, int length) {
+        boolean notify = !listeners.isEmpty();
+        boolean notifyBases = !baseListeners.isEmpty();
+        int runStart = -1;
+        // Sequence bytes from here on have not been given to the composition kernel yet
+        int countFrom = 0;
+        for (int i = 0; i < length; i++) {
+            byte b = buffer[i];
+            long offset = position + i;
+
+            if (b == '\n') {
+                if (runStart >= 0) {
+                    publishBases(buffer, runStart, i);
+                    runStart = -1;
+                }
+                if (inHeader) {
+                    endHeader(offset + 1);
+                    countFrom = i + 1;
+                } else {
+                    if (atLineStart) {
+                        lineBases = 0; // blank line
+                    }
+                    endLine(offset + 1);
+                    if (notify) {
+                        endSequenceLine();
+                    }
+                }
+                atLineStart = true;
+                continue;
+            }
+
+            if (atLineStart) {
+                atLineStart = false;
+                lineStart = offset;
+                lineBases = 0;
+                if (b == '>') {
+                    countComposition(buffer, countFrom, i);
+                    flushComposition();
+                    inHeader = true;
+                    headerOffset = offset;
+                    headerLength = 0;
+                    continue;
+                }
+            }
+
+            if (inHeader) {
+                if (headerLength == headerBytes.length) {
+                    headerBytes = Arrays.copyOf(headerBytes, headerLength * 2);
+                }
+                headerBytes[headerLength++] = b;
+            } else if (b > ' ') {
+                lineBases++;
+                if (notify) {
+                    lineBuilder.append((char) (b & 0xFF));
+                }
+                if (notifyBases && runStart < 0) {
+                    runStart = i;
+                }
+            } else if (runStart >= 0) {
+                publishBases(buffer, runStart, i);
+                runStart = -1;
+            }
+        }
+        if (runStart >= 0) {
+            publishBases(buffer, runStart, length);
+        }
+        if (!inHeader) {
+            countComposition(buffer, countFrom, length);
+        }
+        position += length;
+    }
+
+    /**
+     * Counts a block of sequence lines in one kernel call. Line endings in
+     * the block only land in the OTHER slot, which is not used; the record
+     * length comes from the line lengths instead.
+     */
+    private void countComposition(byte[] buffer, int from, int to) {
+        if (countBases && from < to) {
+            BaseCounter.count(buffer, from, to, composition);
+        }
+    }
+
+    private void publishBases(byte[] buffer, int from, int to) {
+        for (BaseListener listener : baseListeners) {
+            listener.onBases(buffer, from, to);
+        }
+    }
+
+    private void endHeader(long sequenceOffset) {
+        inHeader = false;
+        String header = new String(headerBytes, 0, headerLength, StandardCharsets.ISO_8859_1).trim();
+        records.startRecord(header, headerOffset, sequenceOffset);
+        for (RecordListener listener : listeners) {
+            listener.onHeader(header);
+        }
+        for (BaseListener listener : baseListeners) {
+            listener.onHeader(header);
+        }
+    }
+
+    private void endLine(long nextLineStart) {
+        sequenceLength += lineBases;
+        if (records.hasRecord()) {
+            records.addLine(lineBases, (int) (nextLineStart - lineStart));
+        }
+    }
+
+    private void endSequenceLine() {
+        if (lineBuilder.length() == 0) {
+            return;
+        }
+        String line = lineBuilder.toString();
+        lineBuilder.setLength(0);
+        for (RecordListener listener : listeners) {
+            listener.onSequenceLine(line);
+        }
+    }
+
+    private void flushComposition() {
+        if (records.hasRecord() && countBases) {
+            records.addComposition(sequenceLength,
+                    composition[BaseCounter.G] + composition[BaseCounter.C],
+                    composition[BaseCounter.A] + composition[BaseCounter.T],
+                    composition[BaseCounter.N],
+                    composition[BaseCounter.SOFT_MASKED]);
+        }
+        Arrays.fill(composition, 0);
+        sequenceLength = 0;
+    }
+
+    private void finish() {
+        if (inHeader) {
+            endHeader(position);
+        } else {
+            if (!atLineStart) {
+                endLine(position);
+            }
+            if (!listeners.isEmpty()) {
+                endSequenceLine();
+            }
+        }
+        flushComposition();
+    }
+}
@@ -0,0 +1,274 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package GenomeBrowser;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Binary sidecar holding the record table, composition counts and assembly
+ * metrics of an ingested FASTA file, so reopening a known assembly does not
+ * scan it again. The sidecar is written next to the FASTA file as
+ * ".gbstats", or under ~/.genomebrowser/cache when that directory is not
+ * writable.
+ *
+ * A sidecar is only used when the path, size and modification time it
+ * records match the file, and a CRC32 of samples taken from the start,
+ * middle and end of the file matches too. Layout (big-endian):
+ * <pre>
+ * int magic, int version
+ * long size, long lastModified, long fingerprint, int pathLength, byte[] path (UTF-8)
+ * int recordCount
+ * int totalContigs, long totalLength, long largestContig, double averageLength, long n50
+ * long[] headerOffsets, sequenceOffsets, lengths, gcCounts, atCounts, nCounts, softMaskedCounts
+ * int[] lineBases, lineBytes
+ * byte[] irregularLines
+ * per record: int headerLength, byte[] header (ISO-8859-1)
+ * int magic
+ * </pre>
+ *
+ * @author davidoluwasusi
+ */
+public final class FastaStatsCache {
+
+    private static final int MAGIC = 0x47425354; // "GBST"
+    private static final int VERSION = 2;
+    private static final String SUFFIX = ".gbstats";
+    // Bytes read from each of the start, middle and end of the file for the fingerprint
+    private static final int SAMPLE_SIZE = 64 << 10;
+
+    private FastaStatsCache() {
+    }
+
+    /**
+     * Returns the dataset stored for this file, or null when there is no
+     * sidecar or it no longer matches the file.
+     */
+    public static FastaDataset read(String fastaPath) {
+        for (File sidecar : sidecarFiles(fastaPath, SUFFIX)) {
+            if (!sidecar.isFile()) {
+                continue;
+            }
+            try {
+                FastaDataset dataset = read(sidecar, fastaPath);
+                if (dataset != null) {
+                    return dataset;
+                }
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Ignoring unreadable stats cache " + sidecar + ": " + e.getMessage());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Stores the dataset next to its FASTA file, falling back to the user
+     * cache directory.
+     */
+    public static void write(FastaDataset dataset) {
+        String fastaPath = dataset.getPath();
+        for (File sidecar : sidecarFiles(fastaPath, SUFFIX)) {
+            try {
+                write(dataset, sidecar);
+                return;
+            } catch (IOException | RuntimeException e) {
+                // Try the next location
+            }
+        }
+        System.err.println("Could not write stats cache for " + fastaPath);
+    }
+
+    private static FastaDataset read(File sidecar, String fastaPath) throws IOException {
+        File fasta = new File(fastaPath);
+        try (FileChannel channel = FileChannel.open(sidecar.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                return null;
+            }
+            long size = buffer.getLong();
+            long lastModified = buffer.getLong();
+            long fingerprint = buffer.getLong();
+            byte[] path = new byte[buffer.getInt()];
+            buffer.get(path);
+            if (size != fasta.length() || lastModified != fasta.lastModified()
+                    || !new String(path, StandardCharsets.UTF_8).equals(fasta.getAbsolutePath())
+                    || fingerprint != fingerprint(fasta)) {
+                return null;
+            }
+
+            int count = buffer.getInt();
+            AssemblyMetrics metrics = new AssemblyMetrics(buffer.getInt(), buffer.getLong(), buffer.getLong(),
+                    buffer.getDouble(), buffer.getLong());
+            long[] headerOffsets = readLongs(buffer, count);
+            long[] sequenceOffsets = readLongs(buffer, count);
+            long[] lengths = readLongs(buffer, count);
+            long[] gcCounts = readLongs(buffer, count);
+            long[] atCounts = readLongs(buffer, count);
+            long[] nCounts = readLongs(buffer, count);
+            long[] softMaskedCounts = readLongs(buffer, count);
+            int[] lineBases = readInts(buffer, count);
+            int[] lineBytes = readInts(buffer, count);
+            boolean[] irregularLines = new boolean[count];
+            for (int i = 0; i < count; i++) {
+                irregularLines[i] = buffer.get() != 0;
+            }
+            String[] headers = new String[count];
+            byte[] headerBytes = new byte[256];
+            for (int i = 0; i < count; i++) {
+                int length = buffer.getInt();
+                if (length > headerBytes.length) {
+                    headerBytes = new byte[length];
+                }
+                buffer.get(headerBytes, 0, length);
+                headers[i] = new String(headerBytes, 0, length, StandardCharsets.ISO_8859_1);
+            }
+            if (buffer.getInt() != MAGIC) {
+                return null; // truncated or damaged
+            }
+
+            return new FastaDataset(fastaPath, headers, headerOffsets, sequenceOffsets, lengths,
+                    gcCounts, atCounts, nCounts, softMaskedCounts, lineBases, lineBytes, irregularLines, metrics);
+        } catch (BufferUnderflowException e) {
+            return null;
+        }
+    }
+
+    private static void write(FastaDataset dataset, File sidecar) throws IOException {
+        File fasta = new File(dataset.getPath());
+        File directory = sidecar.getAbsoluteFile().getParentFile();
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create " + directory);
+        }
+
+        // Written to a temporary file first so readers never see half a sidecar
+        Path temporary = Files.createTempFile(directory.toPath(), sidecar.getName(), ".tmp");
+        try {
+            try (OutputStream file = Files.newOutputStream(temporary);
+                    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 1 << 16))) {
+                int count = dataset.getRecordCount();
+                byte[] path = fasta.getAbsolutePath().getBytes(StandardCharsets.UTF_8);
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(fasta.length());
+                out.writeLong(fasta.lastModified());
+                out.writeLong(fingerprint(fasta));
+                out.writeInt(path.length);
+                out.write(path);
+
+                AssemblyMetrics metrics = dataset.getMetrics();
+                out.writeInt(count);
+                out.writeInt(metrics.totalContigs);
+                out.writeLong(metrics.totalLength);
+                out.writeLong(metrics.largestContig);
+                out.writeDouble(metrics.averageLength);
+                out.writeLong(metrics.n50);
+
+                for (int i = 0; i < count; i++) {
+                    out.writeLong(dataset.getHeaderOffset(i));
+                }
+                for (int i = 0; i < count; i++) {
+                    out.writeLong(dataset.getSequenceOffset(i));
+                }
+                for (int i = 0; i < count; i++) {
+                    out.writeLong(dataset.getLength(i));
+                }
+                for (int i = 0; i < count; i++) {
+                    out.writeLong(dataset.getGcCount(i));
+                }
+                for (int i = 0; i < count; i++) {
+                    out.writeLong(dataset.getAtCount(i));
+                }
+                for (int i = 0; i < count; i++) {
+                    out.writeLong(dataset.getNCount(i));
+                }
+                for (int i = 0; i < count; i++) {
+                    out.writeLong(dataset.getSoftMaskedCount(i));
+                }
+                for (int i = 0; i < count; i++) {
+                    out.writeInt(dataset.getLineBases(i));
+                }
+                for (int i = 0; i < count; i++) {
+                    out.writeInt(dataset.getLineBytes(i));
+                }
+                for (int i = 0; i < count; i++) {
+                    out.writeByte(dataset.hasIrregularLines(i) ? 1 : 0);
+                }
+                for (int i = 0; i < count; i++) {
+                    byte[] header = dataset.getHeader(i).getBytes(StandardCharsets.ISO_8859_1);
+                    out.writeInt(header.length);
+                    out.write(header);
+                }
+                out.writeInt(MAGIC);
+            }
+            Files.move(temporary, sidecar.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * CRC32 of the file size and of up to 64 KB from the start, the middle and
+     * the end of the file. Catches files rewritten in place with the same size
+     * and a preserved modification time without reading the whole file.
+     */
+    static long fingerprint(File fasta) throws IOException {
+        CRC32 crc = new CRC32();
+        try (FileChannel channel = FileChannel.open(fasta.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            crc.update(ByteBuffer.allocate(Long.BYTES).putLong(0, size));
+            ByteBuffer sample = ByteBuffer.allocate((int) Math.min(SAMPLE_SIZE, size));
+            long[] starts = {0, Math.max(0, size / 2 - SAMPLE_SIZE / 2), Math.max(0, size - SAMPLE_SIZE)};
+            for (long start : starts) {
+                sample.clear();
+                while (sample.hasRemaining() && channel.read(sample, start + sample.position()) > 0) {
+                    // keep reading until the sample is full
+                }
+                sample.flip();
+                crc.update(sample);
+            }
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * Where a sidecar with the given suffix is looked for and written: next
+     * to the FASTA file first, then in the user cache directory.
+     */
+    static File[] sidecarFiles(String fastaPath, String suffix) {
+        File fasta = new File(fastaPath).getAbsoluteFile();
+        // Central copies are keyed by the absolute path of the FASTA file
+        String key = Integer.toHexString(fasta.getPath().hashCode()) + "-" + fasta.getName() + suffix;
+        File cacheDirectory = Paths.get(System.getProperty("user.home"), ".genomebrowser", "cache").toFile();
+        return new File[]{new File(fasta.getPath() + suffix), new File(cacheDirectory, key)};
+    }
+
+    private static long[] readLongs(ByteBuffer buffer, int count) {
+        long[] values = new long[count];
+        buffer.asLongBuffer().get(values);
+        buffer.position(buffer.position() + count * Long.BYTES);
+        return values;
+    }
+
+    private static int[] readInts(ByteBuffer buffer, int count) {
+        int[] values = new int[count];
+        buffer.asIntBuffer().get(values);
+        buffer.position(buffer.position() + count * Integer.BYTES);
+        return values;
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package GenomeBrowser;
+
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+/**
+ * Zoom pyramid of feature density along one sequence, in the spirit of the
+ * bigWig zoom levels. Level 0 has one bin per {@link #BASE_BIN} bases and
+ * holds, per bin, the number of features starting in it and the number of
+ * bases covered by at least one feature. Every further level merges
+ * {@link #REDUCTION} bins of the level below, so both sums stay exact.
+ *
+ * A zoomed-out view picks the coarsest level whose bins are still no wider
+ * than a pixel; each pixel column then sums at most REDUCTION + 1 bins,
+ * whatever the number of features.
+ *
+ * @author davidoluwasusi
+ */
+public final class FeatureDensity {
+
+    public static final int BASE_BIN = 1024;
+    public static final int REDUCTION = 4;
+
+    // counts[level][bin] and covered[level][bin]; bin b of a level spans
+    // [b * binSize, (b + 1) * binSize) in 0-based coordinates
+    private final int[][] counts;
+    private final int[][] covered;
+    private final int length;
+
+    private FeatureDensity(int[][] counts, int[][] covered, int length) {
+        this.counts = counts;
+        this.covered = covered;
+        this.length = length;
+    }
+
+    /**
+     * Builds the pyramid in one sweep over features sorted by start (as
+     * returned by {@link IntervalIndex#getAll()}). Coordinates are 1-based
+     * and closed, as in GFF.
+     */
+    public static <T> FeatureDensity of(List<T> sortedFeatures, ToIntFunction<T> start, ToIntFunction<T> end) {
+        int length = 0;
+        for (T feature : sortedFeatures) {
+            length = Math.max(length, end.applyAsInt(feature));
+        }
+        int bins = Math.max(1, (int) ((length + (long) BASE_BIN - 1) / BASE_BIN));
+        int[] baseCounts = new int[bins];
+        int[] baseCovered = new int[bins];
+
+        // Overlapping features are merged into runs, so covered bases are
+        // counted once however many features pile up on them
+        long runStart = -1;
+        long runEnd = -1; // exclusive, 0-based
+        for (T feature : sortedFeatures) {
+            long from = Math.max(0, start.applyAsInt(feature) - 1L);
+            long to = Math.max(from, end.applyAsInt(feature));
+            baseCounts[(int) Math.min(bins - 1, from / BASE_BIN)]++;
+            if (from > runEnd) {
+                addCoverage(baseCovered, runStart, runEnd);
+                runStart = from;
+                runEnd = to;
+            } else {
+                runEnd = Math.max(runEnd, to);
+            }
+        }
+        addCoverage(baseCovered, runStart, runEnd);
+
+        int levels = 1;
+        for (long size = bins; size > 1; size = (size + REDUCTION - 1) / REDUCTION) {
+            levels++;
+        }
+        int[][] counts = new int[levels][];
+        int[][] covered = new int[levels][];
+        counts[0] = baseCounts;
+        covered[0] = baseCovered;
+        for (int level = 1; level < levels; level++) {
+            counts[level] = reduce(counts[level - 1]);
+            covered[level] = reduce(covered[level - 1]);
+        }
+        return new FeatureDensity(counts, covered, length);
+    }
+
+    /**
+     * Largest end of the features, i.e. the extent the pyramid covers.
+     */
+    public int getLength() {
+        return length;
+    }
+
+    public int getLevelCount() {
+        return counts.length;
+    }
+
+    public long getBinSize(int level) {
+        long size = BASE_BIN;
+        for (int i = 0; i < level; i++) {
+            size *= REDUCTION;
+        }
+        return size;
+    }
+
+    /**
+     * Coarsest level whose bins are no wider than {@code basesPerPixel}, or
+     * -1 when a pixel is narrower than a level 0 bin (the features should
+     * be drawn one by one then).
+     */
+    public int selectLevel(double basesPerPixel) {
+        if (basesPerPixel < BASE_BIN) {
+            return -1;
+        }
+        int level = 0;
+        while (level + 1 < counts.length && getBinSize(level + 1) <= basesPerPixel) {
+            level++;
+        }
+        return level;
+    }
+
+    /**
+     * Sums the bins of a level per pixel column. Column c covers the bases
+     * [viewStart + c * basesPerPixel, viewStart + (c + 1) * basesPerPixel)
+     * (0-based) and gets every bin that starts inside it. Since a column can
+     * get one bin more than its neighbour, both results are normalised by
+     * the bases of the bins summed.
+     *
+     * @param featuresPerKb features starting per 1000 bases
+     * @param coveredFraction share of the bases covered by a feature, 0 to 1
+     */
+    public void fill(int level, double viewStart, double basesPerPixel, float[] featuresPerKb, float[] coveredFraction) {
+        int[] levelCounts = counts[level];
+        int[] levelCovered = covered[level];
+        double binSize = getBinSize(level);
+        int columns = Math.min(featuresPerKb.length, coveredFraction.length);
+        int bin = (int) Math.max(0, Math.ceil(viewStart / binSize));
+        for (int column = 0; column < columns; column++) {
+            double columnEnd = viewStart + (column + 1) * basesPerPixel;
+            int first = bin;
+            long count = 0;
+            long bases = 0;
+            for (; bin < levelCounts.length && bin * binSize < columnEnd; bin++) {
+                count += levelCounts[bin];
+                bases += levelCovered[bin];
+            }
+            double span = (bin - first) * binSize;
+            featuresPerKb[column] = span == 0 ? 0 : (float) (count * 1000 / span);
+            coveredFraction[column] = span == 0 ? 0 : (float) Math.min(1, bases / span);
+        }
+    }
+
+    private static void addCoverage(int[] covered, long from, long to) {
+        // [from, to) is split over the bins it touches
+        while (from < to) {
+            int bin = (int) (from / BASE_BIN);
+            long binEnd = Math.min(to, (bin + 1L) * BASE_BIN);
+            covered[bin] += (int) (binEnd - from);
+            from = binEnd;
+        }
+    }
+
+    private static int[] reduce(int[] bins) {
+        int[] reduced = new int[(bins.length + REDUCTION - 1) / REDUCTION];
+        for (int i = 0; i < bins.length; i++) {
+            reduced[i / REDUCTION] += bins[i];
+        }
+        return reduced;
+    }
+}
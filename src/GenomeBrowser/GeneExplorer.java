@@ -4,16 +4,20 @@
  */
 package GenomeBrowser;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
+import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.LinkedHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import javax.swing.JComboBox;
+import javax.swing.JFileChooser;
+import javax.swing.JMenuItem;
 import javax.swing.JOptionPane;
+import javax.swing.JPopupMenu;
+import javax.swing.SwingUtilities;
 import javax.swing.SwingWorker;
 import java.awt.BorderLayout;
 
@@ -23,36 +27,40 @@ import java.awt.BorderLayout;
  */
 public class GeneExplorer extends javax.swing.JPanel {
 
+    // Packed scaffolds kept in memory at once (2 bits per base, about 1 Gb of sequence)
+    private static final long SCAFFOLD_CACHE_BYTES = 256L << 20;
+
     private String fastaFilePath;
     private String gffFilePath;
-    private Map<String, String> scaffoldSequences;
+    private FastaDataset fastaDataset;
+    private ScaffoldSequenceCache scaffoldCache;
+    private IndexedFastaReader indexedReader;
     private ContigsHistogramPanel histogramPanel;
+    // GC / N / soft-mask windows of the current FASTA file, computed in the background
+    private CompletableFuture<CompositionTrack> composition;
 
     /**
      * Creates new form GeneExplorer
      */
     public GeneExplorer() {
         initComponents();
-        scaffoldSequences = new HashMap<>();
     }
 
     private List<int[]> parseGffExons(String filePath) {
         List<int[]> exonList = new ArrayList<>();
-        try (BufferedReader br = new BufferedReader(new FileReader(filePath))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                if (line.startsWith("#")) {
+        try (LineTokenizer tokens = LineTokenizer.open(filePath)) {
+            while (tokens.nextLine()) {
+                if (tokens.startsWith('#')) {
                     continue;
                 }
 
-                String[] fields = line.split("\t");
-                if (fields.length < 9) {
+                if (tokens.split('\t') < 9) {
                     continue;
                 }
 
-                if (fields[2].equalsIgnoreCase("exon")) {
-                    int start = Integer.parseInt(fields[3]);
-                    int end = Integer.parseInt(fields[4]);
+                if (tokens.fieldEqualsIgnoreCase(2, "exon")) {
+                    int start = tokens.parseInt(3);
+                    int end = tokens.parseInt(4);
                     exonList.add(new int[]{start, end});
                 }
             }
@@ -62,110 +70,131 @@ public class GeneExplorer extends javax.swing.JPanel {
         return exonList;
     }
 
-    private void setGenesAsOptions(String path) {
-        // Use SwingWorker to perform the operation in the background
-        SwingWorker<List<String>, Void> worker = new SwingWorker<>() {
+    private void setGenesAsOptions(List<String> options) {
+        // Remove all existing items
+        geneSelector.removeAllItems();
+
+        // Add a default option
+        geneSelector.addItem("Select gene to view");
+
+        // Add each gene name from the list to the JComboBox
+        for (String option : options) {
+            geneSelector.addItem(option);
+        }
+    }
+
+    /**
+     * Called as soon as a FASTA file is chosen. When a .fai sidecar exists the
+     * scaffold list and histogram come from it straight away, long before the
+     * full ingestion pass finishes.
+     */
+    public void setExplorerFastaFilePath(String filePath) {
+        fastaFilePath = filePath;
+        fastaDataset = null;
+        composition = null;
+        closeIndexedReader();
+        // Scaffolds are only loaded when viewed, memory follows what is on screen
+        scaffoldCache = new ScaffoldSequenceCache(this::loadScaffold, SCAFFOLD_CACHE_BYTES);
+
+        new SwingWorker<IndexedFastaReader, Void>() {
             @Override
-            protected List<String> doInBackground() {
-                // Perform the long-running task of getting gene names
-                return getGeneNamesFromFasta(path);
+            protected IndexedFastaReader doInBackground() throws Exception {
+                FastaIndex index = FastaIndex.readSidecar(filePath);
+                return index == null ? null : new IndexedFastaReader(filePath, index);
             }
 
             @Override
             protected void done() {
                 try {
-                    // Update the UI on the Event Dispatch Thread
-                    List<String> options = get();
-
-                    // Remove all existing items
-                    geneSelector.removeAllItems();
-
-                    // Add a default option
-                    geneSelector.addItem("Select gene to view");
-
-                    // Add each gene name from the list to the JComboBox
-                    for (String option : options) {
-                        geneSelector.addItem(option);
+                    IndexedFastaReader reader = get();
+                    if (reader != null && filePath.equals(fastaFilePath) && indexedReader == null) {
+                        setIndexedReader(reader);
                     }
                 } catch (Exception e) {
-                    // Handle exceptions (e.g., file not found, access issues)
-                    e.printStackTrace();
-                    JOptionPane.showMessageDialog(null, "Error loading gene names: " + e.getMessage(),
-                            "Error", JOptionPane.ERROR_MESSAGE);
+                    System.err.println("Error opening FASTA index: " + e.getMessage());
                 }
             }
-        };
-
-        // Execute the SwingWorker
-        worker.execute();
+        }.execute();
     }
 
-    public static ArrayList<String> getGeneNamesFromFasta(String fastaFilePath) {
-        ArrayList<String> geneNames = new ArrayList<>();
-
-        try (BufferedReader reader = new BufferedReader(new FileReader(fastaFilePath))) {
-            String line;
+    /**
+     * Hands the explorer the dataset produced by the single ingestion pass.
+     * If the file had no index yet, one is built from the dataset and saved
+     * next to the FASTA file so the next open is instant.
+     */
+    public void setExplorerFastaDataset(FastaDataset dataset) {
+        fastaDataset = dataset;
+        fastaFilePath = dataset.getPath();
+        if (indexedReader != null) {
+            return;
+        }
 
-            while ((line = reader.readLine()) != null) {
-                if (line.startsWith(">")) {
-                    // Extract the gene name from the header line
-                    String geneName = getGeneIdFromLine(line);
-                    geneNames.add(geneName);
+        new SwingWorker<IndexedFastaReader, Void>() {
+            @Override
+            protected IndexedFastaReader doInBackground() throws Exception {
+                FastaIndex index = FastaIndex.fromDataset(dataset);
+                // Opening the reader first rejects plain gzip, which cannot be indexed
+                IndexedFastaReader reader = new IndexedFastaReader(dataset.getPath(), index);
+                try {
+                    index.write(FastaIndex.indexPath(dataset.getPath()));
+                } catch (IOException e) {
+                    System.err.println("Could not save FASTA index: " + e.getMessage());
                 }
+                return reader;
             }
-        } catch (IOException e) {
-            System.err.println("Error reading FASTA file: " + e.getMessage());
-        }
 
-        return geneNames;
+            @Override
+            protected void done() {
+                if (fastaDataset != dataset) {
+                    return;
+                }
+                try {
+                    setIndexedReader(get());
+                } catch (Exception e) {
+                    // Not indexable (uneven line lengths), list the scaffolds from the dataset
+                    System.err.println("Error indexing FASTA file: " + e.getMessage());
+                    List<String> ids = new ArrayList<>();
+                    for (int i = 0; i < dataset.getRecordCount(); i++) {
+                        ids.add(dataset.getId(i));
+                    }
+                    setGenesAsOptions(ids);
+                    showContigHistogram(dataset.getContigLengths());
+                    startComposition(dataset.getPath(), null);
+                }
+            }
+        }.execute();
     }
 
-    private static String getGeneIdFromLine(String line) {
-        String[] parts = line.split("\\|");
-        return parts[0].substring(1);
+    private void setIndexedReader(IndexedFastaReader reader) {
+        closeIndexedReader();
+        indexedReader = reader;
+        FastaIndex index = reader.getIndex();
+        setGenesAsOptions(index.getNames());
+        // The histogram only needs lengths, which the index already has
+        showContigHistogram(index.getContigLengths());
+        startComposition(fastaFilePath, index);
     }
 
-    public static Map<String, Integer> getContigLengthsFromFasta(String fastaFilePath) {
-        Map<String, Integer> contigLengths = new LinkedHashMap<>();
-
-        try (BufferedReader reader = new BufferedReader(new FileReader(fastaFilePath))) {
-            String line;
-            String currentContig = null;
-            int currentLength = 0;
-
-            while ((line = reader.readLine()) != null) {
-                if (line.startsWith(">")) {
-                    // Save previous contig length
-                    if (currentContig != null) {
-                        contigLengths.put(currentContig, currentLength);
-                    }
-                    // Start new contig
-                    currentContig = line.split("\\s+")[0].substring(1);
-                    currentLength = 0;
-                } else {
-                    currentLength += line.trim().length();
-                }
-            }
+    private void startComposition(String filePath, FastaIndex index) {
+        composition = CompositionTrack.get(filePath, index);
+        composition.exceptionally(e -> {
+            System.err.println("Error computing sequence composition: " + e.getMessage());
+            return null;
+        });
+    }
 
-            // Save the last contig
-            if (currentContig != null) {
-                contigLengths.put(currentContig, currentLength);
+    private void closeIndexedReader() {
+        if (indexedReader != null) {
+            try {
+                indexedReader.close();
+            } catch (IOException e) {
+                e.printStackTrace();
             }
-
-        } catch (IOException e) {
-            System.err.println("Error reading FASTA file: " + e.getMessage());
+            indexedReader = null;
         }
-
-        return contigLengths;
     }
 
-    public void setExplorerFastaFilePath(String filePath) {
-        fastaFilePath = filePath;
-        setGenesAsOptions(filePath);
-        loadScaffoldSequences(filePath);
-
-        // Extract contig lengths and update histogram
-        Map<String, Integer> contigLengths = getContigLengthsFromFasta(filePath);
+    private void showContigHistogram(Map<String, Integer> contigLengths) {
         histogramPanel = new ContigsHistogramPanel(contigLengths);
         contigsHistoPane.removeAll();
         contigsHistoPane.setLayout(new BorderLayout());
@@ -177,33 +206,9 @@ public class GeneExplorer extends javax.swing.JPanel {
 
     public void setExplorerGffFilePath(String filePath) {
         gffFilePath = filePath;
-        loadGeneData(filePath);
-    }
-
-    private void loadScaffoldSequences(String fastaFilePath) {
-        scaffoldSequences.clear();
-        try (BufferedReader reader = new BufferedReader(new FileReader(fastaFilePath))) {
-            String line;
-            String currentScaffold = null;
-            StringBuilder sequenceBuilder = new StringBuilder();
-
-            while ((line = reader.readLine()) != null) {
-                if (line.startsWith(">")) {
-                    if (currentScaffold != null) {
-                        scaffoldSequences.put(currentScaffold, sequenceBuilder.toString());
-                    }
-                    currentScaffold = line.split("\\s+")[0].substring(1);
-                    sequenceBuilder = new StringBuilder();
-                } else {
-                    sequenceBuilder.append(line.trim());
-                }
-            }
-            if (currentScaffold != null) {
-                scaffoldSequences.put(currentScaffold, sequenceBuilder.toString());
-            }
-        } catch (IOException e) {
-            System.err.println("Error loading sequences: " + e.getMessage());
-        }
+        // Built in the background from the rows the table loads; selections
+        // only look the scaffold up
+        GeneModelCache.get(filePath);
     }
 
     /**
@@ -354,25 +359,146 @@ public class GeneExplorer extends javax.swing.JPanel {
     }// </editor-fold>//GEN-END:initComponents
 
     private void showScaffoldDetails(String scaffoldName) {
-        String sequence = scaffoldSequences.get(scaffoldName);
-        if (sequence == null) {
+        if (scaffoldCache == null) {
             return;
         }
+        ScaffoldSequenceCache cache = scaffoldCache;
+        prefetchNeighbours(scaffoldName);
 
-        int length = sequence.length();
-        if (length > 1000) {
-            sequence = sequence.substring(0, 1000) + "..."; // Append "..." to indicate truncation
+        // The scaffold is loaded on demand, off the event dispatch thread
+        new SwingWorker<PackedSequenceStore, Void>() {
+            @Override
+            protected PackedSequenceStore doInBackground() throws Exception {
+                return cache.get(scaffoldName);
+            }
+
+            @Override
+            protected void done() {
+                if (cache != scaffoldCache || !scaffoldName.equals(geneSelector.getSelectedItem())) {
+                    return; // another file or scaffold was picked in the meantime
+                }
+                try {
+                    showScaffoldDetails(scaffoldName, get());
+                } catch (Exception e) {
+                    System.err.println("Error loading scaffold " + scaffoldName + ": " + e.getMessage());
+                }
+            }
+        }.execute();
+    }
+
+    private void prefetchNeighbours(String scaffoldName) {
+        int selected = -1;
+        for (int i = 1; i < geneSelector.getItemCount(); i++) {
+            if (scaffoldName.equals(geneSelector.getItemAt(i))) {
+                selected = i;
+                break;
+            }
+        }
+        if (selected < 0 || indexedReader == null) {
+            return; // without an index a load can mean a scan of the whole file
+        }
+        // Item 0 is the "Select gene to view" prompt
+        if (selected > 1) {
+            scaffoldCache.prefetch(geneSelector.getItemAt(selected - 1));
+        }
+        if (selected + 1 < geneSelector.getItemCount()) {
+            scaffoldCache.prefetch(geneSelector.getItemAt(selected + 1));
+        }
+    }
+
+    private PackedSequenceStore loadScaffold(String scaffoldName) throws IOException {
+        PackedSequenceStore.Builder builder = new PackedSequenceStore.Builder();
+        IndexedFastaReader reader = indexedReader;
+        if (reader != null) {
+            if (reader.getIndex().getEntry(scaffoldName) != null) {
+                reader.stream(scaffoldName, 0, Long.MAX_VALUE, builder);
+            }
+            return builder.build(); // empty for a name the file does not have
+        }
+
+        // Uneven lines rule out the index, but the record table still knows
+        // where the record's bytes start and where the next header begins
+        FastaDataset dataset = fastaDataset;
+        int record = dataset == null ? -1 : dataset.indexOf(scaffoldName);
+        if (dataset != null && record < 0) {
+            return builder.build();
+        }
+        if (record >= 0 && CompressedInput.detect(fastaFilePath) != CompressedInput.Format.GZIP) {
+            try (ByteSource source = CompressedInput.openRandomAccess(fastaFilePath)) {
+                long end = record + 1 < dataset.getRecordCount()
+                        ? dataset.getHeaderOffset(record + 1) : source.size();
+                builder.onHeader(dataset.getHeader(record));
+                IndexedFastaReader.streamBases(source, dataset.getSequenceOffset(record), end, builder);
+            }
+            return builder.build();
         }
 
-        double gcContent = calculateGCContent(sequence);
+        // Plain gzip cannot seek (nor can anything before ingestion ends):
+        // scan the file for this scaffold only
+        FastaIngestor ingestor = new FastaIngestor();
+        ingestor.addBaseListener(new FastaIngestor.BaseListener() {
+            private boolean selected;
+
+            @Override
+            public void onHeader(String header) {
+                selected = FastaDataset.idOf(header).equals(scaffoldName);
+                if (selected) {
+                    builder.onHeader(header);
+                }
+            }
+
+            @Override
+            public void onBases(byte[] buffer, int from, int to) {
+                if (selected) {
+                    builder.onBases(buffer, from, to);
+                }
+            }
+        });
+        ingestor.ingest(fastaFilePath);
+        return builder.build();
+    }
+
+    private void showScaffoldDetails(String scaffoldName, PackedSequenceStore scaffold) {
+        if (!scaffold.contains(scaffoldName)) {
+            return;
+        }
+        long length = scaffold.getLength(scaffoldName);
+        String sequence = scaffold.subsequence(scaffoldName, 0, Math.min(length, 1000));
+        double gcContent = BaseCounter.gcContent(sequence);
+        if (length > 1000) {
+            sequence = sequence + "..."; // Append "..." to indicate truncation
+        }
 
         scaffoldLengthPane.setText(String.valueOf(length));
         gcContentPane.setText(String.format("%.2f%%", gcContent * 100));
         scaffoldSequencePanel.setContentType("text/html");
         scaffoldSequencePanel.setText("<html><body><p style=\"width:500px;\">" + sequence + "</p></body></html>");
 
-        Map<String, List<ScaffoldGeneVisualizer.Gene>> geneData = loadGeneData(gffFilePath);
-        ScaffoldGeneVisualizer geneVisualizer = new ScaffoldGeneVisualizer(scaffoldName, geneData, length);
+        if (gffFilePath == null) {
+            showScaffoldGenes(scaffoldName, Collections.emptyMap(), Collections.emptyMap(), length);
+            return;
+        }
+        GeneModelCache.get(gffFilePath).thenAcceptBoth(GeneModelCache.getDensity(gffFilePath),
+                (geneData, densityData) -> SwingUtilities.invokeLater(() -> {
+                    // Only if the scaffold is still selected by the time the GFF is parsed
+                    if (scaffoldName.equals(geneSelector.getSelectedItem())) {
+                        showScaffoldGenes(scaffoldName, geneData, densityData, length);
+                    }
+                })).exceptionally(e -> {
+                    // The GFF could not be read; the scaffold is still shown, without genes
+                    System.err.println("Error loading gene models: " + e.getMessage());
+                    SwingUtilities.invokeLater(() -> {
+                        if (scaffoldName.equals(geneSelector.getSelectedItem())) {
+                            showScaffoldGenes(scaffoldName, Collections.emptyMap(), Collections.emptyMap(), length);
+                        }
+                    });
+                    return null;
+                });
+    }
+
+    private void showScaffoldGenes(String scaffoldName, Map<String, IntervalIndex<ScaffoldGeneVisualizer.Gene>> geneData,
+            Map<String, FeatureDensity> densityData, long length) {
+        ScaffoldGeneVisualizer geneVisualizer = new ScaffoldGeneVisualizer(scaffoldName, geneData, densityData, length);
 
         // Display in a panel
         geneVisualizationPanel.removeAll();
@@ -381,63 +507,84 @@ public class GeneExplorer extends javax.swing.JPanel {
         geneVisualizationPanel.add(geneVisualizer, BorderLayout.CENTER);
         geneVisualizationPanel.revalidate();
         geneVisualizationPanel.repaint();
+        showComposition(scaffoldName, geneVisualizer);
     }
 
-    private double calculateGCContent(String sequence) {
-        int gcCount = 0;
-        for (char c : sequence.toCharArray()) {
-            if (c == 'G' || c == 'C') {
-                gcCount++;
-            }
+    /**
+     * Once the composition windows are ready: the GC content of the whole
+     * scaffold instead of its first bases, and the signal track under the genes.
+     */
+    private void showComposition(String scaffoldName, ScaffoldGeneVisualizer geneVisualizer) {
+        CompletableFuture<CompositionTrack> track = composition;
+        if (track == null) {
+            return;
         }
-        return (double) gcCount / sequence.length();
+        track.thenAccept(windows -> SwingUtilities.invokeLater(() -> {
+            CompositionTrack.Scaffold signal = windows.getScaffold(scaffoldName);
+            if (signal == null || track != composition || !scaffoldName.equals(geneSelector.getSelectedItem())) {
+                return;
+            }
+            double gcContent = signal.getFraction(CompositionTrack.GC);
+            if (!Double.isNaN(gcContent)) {
+                gcContentPane.setText(String.format("%.2f%%", gcContent * 100));
+            }
+            geneVisualizer.setComposition(signal);
+            geneVisualizer.setComponentPopupMenu(compositionMenu(windows));
+        }));
     }
 
-    public Map<String, List<ScaffoldGeneVisualizer.Gene>> loadGeneData(String filePath) {
-        Map<String, List<ScaffoldGeneVisualizer.Gene>> geneData = new HashMap<>();
-
-        try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                if (line.startsWith("#")) {
-                    continue; // Skip comments
-                }
-                String[] fields = line.split("\t");
-                if (fields.length < 9) {
-                    continue;
-                }
+    private JPopupMenu compositionMenu(CompositionTrack track) {
+        JPopupMenu menu = new JPopupMenu();
+        for (int metric : new int[]{CompositionTrack.GC, CompositionTrack.N, CompositionTrack.SOFT_MASKED}) {
+            JMenuItem export = new JMenuItem("Export " + CompositionTrack.getMetricName(metric) + "% as bedGraph...");
+            export.addActionListener(event -> exportBedGraph(track, metric));
+            menu.add(export);
+        }
+        return menu;
+    }
 
-                String seqid = fields[0];  // Scaffold/contig name
-                String type = fields[2];   // Feature type
-                int start = Integer.parseInt(fields[3]);
-                int end = Integer.parseInt(fields[4]);
-                String strand = fields[6];
+    private void exportBedGraph(CompositionTrack track, int metric) {
+        String name = CompositionTrack.getMetricName(metric).toLowerCase();
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setDialogTitle("Export " + name + " content");
+        fileChooser.setSelectedFile(new File(new File(track.getPath()).getName() + "." + name + ".bedGraph"));
+        if (fileChooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        File file = fileChooser.getSelectedFile();
 
-                if (type.equals("gene")) {
-                    // Extract gene ID from attributes
-                    String attributes = fields[8];
-                    String geneName = attributes.split(";")[0].replace("ID=", "").replace("\"", "");
+        // Every window of every scaffold, written off the EDT
+        new SwingWorker<Void, Void>() {
+            @Override
+            protected Void doInBackground() throws Exception {
+                track.writeBedGraph(file.toPath(), metric);
+                return null;
+            }
 
-                    geneData.computeIfAbsent(seqid, k -> new ArrayList<>()).add(
-                            new ScaffoldGeneVisualizer.Gene(geneName, start, end, strand)
-                    );
+            @Override
+            protected void done() {
+                try {
+                    get();
+                    JOptionPane.showMessageDialog(GeneExplorer.this, "File saved successfully to " + file.getAbsolutePath(),
+                            "Success", JOptionPane.INFORMATION_MESSAGE);
+                } catch (InterruptedException | ExecutionException e) {
+                    e.printStackTrace();
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    JOptionPane.showMessageDialog(GeneExplorer.this, "Error saving file: " + cause.getMessage(),
+                            "Error", JOptionPane.ERROR_MESSAGE);
                 }
             }
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-
-        return geneData;
+        }.execute();
     }
 
-
     private void geneSelectorActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_geneSelectorActionPerformed
         // TODO add your handling code here:
         if (evt.getSource() == geneSelector) {
             JComboBox<String> comboBox = (JComboBox<String>) evt.getSource();
             var selectedGene = (String) comboBox.getSelectedItem();
 
-            if (selectedGene == null) {
+            // Item 0 is the "Select gene to view" prompt, not a scaffold
+            if (selectedGene == null || comboBox.getSelectedIndex() <= 0) {
                 return;
             }
 
@@ -0,0 +1,179 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package GenomeBrowser;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Gene models of GFF files, shared by every panel. They are built from the
+ * {@link GffFeatureStore} of a file: the store the annotation table loads is
+ * handed over with {@link #put}, so a file is parsed once, and only a file
+ * nobody loaded yet (or one that changed on disk) is read here, in the
+ * background. Genes are held in an {@link IntervalIndex} per seqid, so a
+ * panel asking for the genes in a region does a lookup and an
+ * O(log n + k) query. A {@link FeatureDensity} pyramid per seqid is built
+ * right after for the zoomed-out views.
+ *
+ * A read error completes the futures exceptionally; nothing partial is
+ * kept, and the next request reads the file again.
+ *
+ * @author davidoluwasusi
+ */
+public final class GeneModelCache {
+
+    private static final ExecutorService PARSER = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "gff-parser");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static final Map<String, Entry> ENTRIES = new ConcurrentHashMap<>();
+
+    private static final class Entry {
+
+        final long size;
+        final long lastModified;
+        final CompletableFuture<Map<String, IntervalIndex<ScaffoldGeneVisualizer.Gene>>> genes;
+        final CompletableFuture<Map<String, FeatureDensity>> density;
+
+        Entry(File file, CompletableFuture<GffFeatureStore> features) {
+            this.size = file.length();
+            this.lastModified = file.lastModified();
+            this.genes = features.thenApplyAsync(GeneModelCache::genes, PARSER);
+            this.density = genes.thenApplyAsync(GeneModelCache::density, PARSER);
+        }
+
+        boolean isCurrent(File file) {
+            return size == file.length() && lastModified == file.lastModified()
+                    && !genes.isCompletedExceptionally();
+        }
+    }
+
+    private GeneModelCache() {
+    }
+
+    /**
+     * Genes of a GFF file by seqid. Starts a background read the first time
+     * the file is asked for, when it changed since, or when the last read
+     * failed.
+     */
+    public static CompletableFuture<Map<String, IntervalIndex<ScaffoldGeneVisualizer.Gene>>> get(String gffPath) {
+        return entry(gffPath).genes;
+    }
+
+    /**
+     * Gene density pyramids of a GFF file by seqid, built once the genes
+     * are in.
+     */
+    public static CompletableFuture<Map<String, FeatureDensity>> getDensity(String gffPath) {
+        return entry(gffPath).density;
+    }
+
+    /**
+     * Builds the gene models of a file from a store being read elsewhere,
+     * instead of reading the file a second time. {@code features} should
+     * only complete normally with every row of the file.
+     */
+    public static void put(String gffPath, CompletableFuture<GffFeatureStore> features) {
+        File file = new File(gffPath).getAbsoluteFile();
+        ENTRIES.put(file.getPath(), new Entry(file, features));
+    }
+
+    private static Entry entry(String gffPath) {
+        File file = new File(gffPath).getAbsoluteFile();
+        return ENTRIES.compute(file.getPath(), (path, entry) -> {
+            if (entry != null && entry.isCurrent(file)) {
+                return entry;
+            }
+            return new Entry(file, CompletableFuture.supplyAsync(() -> read(gffPath), PARSER));
+        });
+    }
+
+    /**
+     * Drops the gene models of a file, e.g. when it is closed.
+     */
+    public static void evict(String gffPath) {
+        ENTRIES.remove(new File(gffPath).getAbsolutePath());
+    }
+
+    private static GffFeatureStore read(String gffPath) {
+        try {
+            return GffFeatureStore.read(gffPath);
+        } catch (IOException e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    private static Map<String, IntervalIndex<ScaffoldGeneVisualizer.Gene>> genes(GffFeatureStore features) {
+        int geneType = features.getTypes().indexOf("gene");
+        List<String> seqids = features.getSeqids();
+        // Genes grouped by seqid code, so rows are never looked up by name
+        List<List<ScaffoldGeneVisualizer.Gene>> bySeqid = new ArrayList<>(Collections.nCopies(seqids.size(), null));
+        for (int row = 0; geneType >= 0 && row < features.size(); row++) {
+            if (features.getTypeCode(row) != geneType) {
+                continue;
+            }
+            // Gene name from the ID (GFF3) or gene_id (GTF) tag
+            String geneName = features.getAttribute(row, GffAttributes.ID);
+            if (geneName == null) {
+                geneName = features.getAttribute(row, GffAttributes.GENE_ID);
+            }
+            if (geneName == null) {
+                // No usual tag, fall back to the first attribute as before
+                String attributes = features.getAttributes(row);
+                int semicolon = attributes.indexOf(';');
+                geneName = semicolon < 0 ? attributes : attributes.substring(0, semicolon);
+            }
+
+            int seqid = features.getSeqidCode(row);
+            if (bySeqid.get(seqid) == null) {
+                bySeqid.set(seqid, new ArrayList<>());
+            }
+            bySeqid.get(seqid).add(new ScaffoldGeneVisualizer.Gene(geneName,
+                    features.getStart(row), features.getEnd(row), strand(features.getStrand(row))));
+        }
+
+        // One interval index per seqid; shared between panels, so read-only
+        Map<String, IntervalIndex<ScaffoldGeneVisualizer.Gene>> index = new HashMap<>(seqids.size() * 2);
+        for (int seqid = 0; seqid < bySeqid.size(); seqid++) {
+            if (bySeqid.get(seqid) != null) {
+                index.put(seqids.get(seqid), IntervalIndex.of(bySeqid.get(seqid), gene -> gene.start, gene -> gene.end));
+            }
+        }
+        return Collections.unmodifiableMap(index);
+    }
+
+    private static String strand(char strand) {
+        switch (strand) {
+            case '+':
+                return "+";
+            case '-':
+                return "-";
+            case '.':
+                return ".";
+            default:
+                return String.valueOf(strand);
+        }
+    }
+
+    private static Map<String, FeatureDensity> density(Map<String, IntervalIndex<ScaffoldGeneVisualizer.Gene>> genes) {
+        Map<String, FeatureDensity> density = new HashMap<>(genes.size() * 2);
+        for (Map.Entry<String, IntervalIndex<ScaffoldGeneVisualizer.Gene>> entry : genes.entrySet()) {
+            density.put(entry.getKey(), FeatureDensity.of(entry.getValue().getAll(), gene -> gene.start, gene -> gene.end));
+        }
+        return Collections.unmodifiableMap(density);
+    }
+}
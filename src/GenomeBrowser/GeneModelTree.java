@@ -0,0 +1,279 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package GenomeBrowser;
+
+import java.util.Arrays;
+
+/**
+ * Gene -> transcript -> exon hierarchy of a {@link GffFeatureStore}, linked
+ * through the Parent attribute (GFF3) or transcript_id / gene_id (GTF).
+ *
+ * The links are found with a hash join: the store's ID index is the build
+ * side and every Parent value is probed against it straight from the
+ * attribute bytes. Children are kept in CSR form (one offsets array, one
+ * children array), and the exons of every gene are flattened once into
+ * sorted start/end arrays, so drawing a gene reads one contiguous range.
+ *
+ * @author davidoluwasusi
+ */
+public final class GeneModelTree {
+
+    // Guards against Parent cycles in malformed files
+    private static final int MAX_DEPTH = 16;
+
+    private final GffFeatureStore features;
+    // Children of row r are children[childOffsets[r], childOffsets[r + 1])
+    private final int[] childOffsets;
+    private final int[] children;
+    private final int[] parentCounts;
+    // Top-level gene rows in file order; exons of gene g are
+    // exonStarts/exonEnds[exonOffsets[g], exonOffsets[g + 1])
+    private final int[] genes;
+    private final int[] exonOffsets;
+    private final int[] exonStarts;
+    private final int[] exonEnds;
+
+    private GeneModelTree(GffFeatureStore features, int[] childOffsets, int[] children, int[] parentCounts,
+            int[] genes, int[] exonOffsets, int[] exonStarts, int[] exonEnds) {
+        this.features = features;
+        this.childOffsets = childOffsets;
+        this.children = children;
+        this.parentCounts = parentCounts;
+        this.genes = genes;
+        this.exonOffsets = exonOffsets;
+        this.exonStarts = exonStarts;
+        this.exonEnds = exonEnds;
+    }
+
+    public static GeneModelTree build(GffFeatureStore features) {
+        int size = features.size();
+        boolean[] geneTypes = typeFlags(features, "gene", "pseudogene");
+        boolean[] transcriptTypes = typeFlags(features, "transcript", "mRNA", "ncRNA", "lnc_RNA", "tRNA", "rRNA");
+        boolean[] exonTypes = typeFlags(features, "exon");
+
+        // Probe every Parent value against the ID index
+        GffAttributeIndex ids = features.attributeIndex(GffAttributes.ID);
+        int[][] edges = {new int[size], new int[size]}; // parent, child
+        int[] edgeCount = {0};
+        int[] parentCounts = new int[size];
+        for (int row = 0; row < size; row++) {
+            byte[] page = features.getAttributePage(row);
+            int from = features.getAttributeStart(row);
+            int child = row;
+            GffAttributes.forEachValue(page, from, from + features.getAttributeLength(row), GffAttributes.PARENT, (start, end) -> {
+                int parent = ids.findFirst(page, start, end);
+                if (parent >= 0 && parent != child) {
+                    addEdge(edges, edgeCount, parent, child);
+                    parentCounts[child]++;
+                }
+                return true;
+            });
+            if (parentCounts[row] == 0 && !geneTypes[features.getTypeCode(row)]) {
+                // GTF has no Parent; exons name their transcript and transcripts their gene
+                int parent = transcriptTypes[features.getTypeCode(row)] ? -1
+                        : gtfParent(features, row, GffAttributes.TRANSCRIPT_ID, transcriptTypes);
+                if (parent < 0) {
+                    parent = gtfParent(features, row, GffAttributes.GENE_ID, geneTypes);
+                }
+                if (parent >= 0) {
+                    addEdge(edges, edgeCount, parent, row);
+                    parentCounts[row]++;
+                }
+            }
+        }
+
+        // Counting sort of the edges by parent gives the CSR arrays
+        int[] childOffsets = new int[size + 1];
+        for (int i = 0; i < edgeCount[0]; i++) {
+            childOffsets[edges[0][i] + 1]++;
+        }
+        for (int row = 0; row < size; row++) {
+            childOffsets[row + 1] += childOffsets[row];
+        }
+        int[] children = new int[edgeCount[0]];
+        int[] fill = Arrays.copyOf(childOffsets, size);
+        for (int i = 0; i < edgeCount[0]; i++) {
+            children[fill[edges[0][i]]++] = edges[1][i];
+        }
+
+        // Genes are top-level rows that are genes or have children
+        int geneCount = 0;
+        int[] genes = new int[16];
+        for (int row = 0; row < size; row++) {
+            if (parentCounts[row] == 0 && (geneTypes[features.getTypeCode(row)] || childOffsets[row + 1] > childOffsets[row])) {
+                if (geneCount == genes.length) {
+                    genes = Arrays.copyOf(genes, geneCount * 2);
+                }
+                genes[geneCount++] = row;
+            }
+        }
+        genes = Arrays.copyOf(genes, geneCount);
+
+        // Flatten the exons below each gene, sorted and without duplicates
+        // (an exon shared by two transcripts is drawn once)
+        int[] exonOffsets = new int[geneCount + 1];
+        int[] exonStarts = new int[16];
+        int[] exonEnds = new int[16];
+        int exonCount = 0;
+        long[] collected = new long[16];
+        int[] stackRows = new int[64];
+        int[] stackDepths = new int[64];
+        for (int g = 0; g < geneCount; g++) {
+            int found = 0;
+            int top = 0;
+            stackRows[top] = genes[g];
+            stackDepths[top++] = 0;
+            while (top > 0) {
+                top--;
+                int row = stackRows[top];
+                int depth = stackDepths[top];
+                if (exonTypes[features.getTypeCode(row)]) {
+                    if (found == collected.length) {
+                        collected = Arrays.copyOf(collected, found * 2);
+                    }
+                    collected[found++] = (long) features.getStart(row) << 32 | (features.getEnd(row) & 0xFFFFFFFFL);
+                }
+                if (depth == MAX_DEPTH) {
+                    continue;
+                }
+                for (int c = childOffsets[row]; c < childOffsets[row + 1]; c++) {
+                    if (top == stackRows.length) {
+                        stackRows = Arrays.copyOf(stackRows, top * 2);
+                        stackDepths = Arrays.copyOf(stackDepths, top * 2);
+                    }
+                    stackRows[top] = children[c];
+                    stackDepths[top++] = depth + 1;
+                }
+            }
+            Arrays.sort(collected, 0, found);
+            for (int i = 0; i < found; i++) {
+                if (i > 0 && collected[i] == collected[i - 1]) {
+                    continue;
+                }
+                if (exonCount == exonStarts.length) {
+                    exonStarts = Arrays.copyOf(exonStarts, exonCount * 2);
+                    exonEnds = Arrays.copyOf(exonEnds, exonCount * 2);
+                }
+                exonStarts[exonCount] = (int) (collected[i] >> 32);
+                exonEnds[exonCount++] = (int) collected[i];
+            }
+            exonOffsets[g + 1] = exonCount;
+        }
+
+        return new GeneModelTree(features, childOffsets, children, parentCounts, genes, exonOffsets,
+                Arrays.copyOf(exonStarts, exonCount), Arrays.copyOf(exonEnds, exonCount));
+    }
+
+    public GffFeatureStore getFeatures() {
+        return features;
+    }
+
+    public int getGeneCount() {
+        return genes.length;
+    }
+
+    /**
+     * Store row of the g-th gene.
+     */
+    public int getGeneRow(int gene) {
+        return genes[gene];
+    }
+
+    /**
+     * Index of the gene whose ID (or gene_id) is {@code name}, or -1.
+     */
+    public int findGene(String name) {
+        int row = features.findById(name);
+        if (row < 0) {
+            int[] rows = features.findRows(GffAttributes.GENE_ID, name);
+            row = rows.length == 0 ? -1 : rows[0];
+        }
+        return row < 0 ? -1 : Math.max(-1, Arrays.binarySearch(genes, row));
+    }
+
+    /**
+     * Display name of a gene: its ID, gene_id or Name.
+     */
+    public String getGeneName(int gene) {
+        int row = genes[gene];
+        String name = features.getAttribute(row, GffAttributes.ID);
+        if (name == null) {
+            name = features.getAttribute(row, GffAttributes.GENE_ID);
+        }
+        if (name == null) {
+            name = features.getAttribute(row, GffAttributes.NAME);
+        }
+        return name != null ? name : features.getSeqid(row) + ":" + features.getStart(row) + "-" + features.getEnd(row);
+    }
+
+    public int getExonCount(int gene) {
+        return exonOffsets[gene + 1] - exonOffsets[gene];
+    }
+
+    /**
+     * Start of the i-th exon of a gene; exons are sorted by start.
+     */
+    public int getExonStart(int gene, int exon) {
+        return exonStarts[exonOffsets[gene] + exon];
+    }
+
+    public int getExonEnd(int gene, int exon) {
+        return exonEnds[exonOffsets[gene] + exon];
+    }
+
+    public int getChildCount(int row) {
+        return childOffsets[row + 1] - childOffsets[row];
+    }
+
+    /**
+     * The i-th child of a store row (transcripts of a gene, exons and CDS of
+     * a transcript), in file order.
+     */
+    public int getChild(int row, int child) {
+        return children[childOffsets[row] + child];
+    }
+
+    public int getParentCount(int row) {
+        return parentCounts[row];
+    }
+
+    private static void addEdge(int[][] edges, int[] count, int parent, int child) {
+        if (count[0] == edges[0].length) {
+            edges[0] = Arrays.copyOf(edges[0], Math.max(16, count[0] * 2));
+            edges[1] = Arrays.copyOf(edges[1], Math.max(16, count[0] * 2));
+        }
+        edges[0][count[0]] = parent;
+        edges[1][count[0]++] = child;
+    }
+
+    /**
+     * First row of one of the {@code parentTypes} sharing the row's value of
+     * a GTF tag, or -1.
+     */
+    private static int gtfParent(GffFeatureStore features, int row, String tag, boolean[] parentTypes) {
+        String value = features.getAttribute(row, tag);
+        if (value == null) {
+            return -1;
+        }
+        for (int candidate : features.findRows(tag, value)) {
+            if (candidate != row && parentTypes[features.getTypeCode(candidate)]) {
+                return candidate;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean[] typeFlags(GffFeatureStore features, String... names) {
+        boolean[] flags = new boolean[features.getTypes().size()];
+        for (int code = 0; code < flags.length; code++) {
+            for (String name : names) {
+                if (name.equalsIgnoreCase(features.getTypes().get(code))) {
+                    flags[code] = true;
+                }
+            }
+        }
+        return flags;
+    }
+}
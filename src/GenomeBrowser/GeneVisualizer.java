@@ -10,11 +10,16 @@ package GenomeBrowser;
  */
 import javax.swing.*;
 import java.awt.*;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
 public class GeneVisualizer extends JPanel {
 
+    private static final Color GENE_COLOR = Color.CYAN;
+    private static final Color EXON_COLOR = Color.BLUE;
+
+    private final OffscreenRenderer renderer = new OffscreenRenderer(this);
     private String geneName;
     private List<int[]> exons;
     private int geneStart;
@@ -28,31 +33,58 @@ public class GeneVisualizer extends JPanel {
         setPreferredSize(new Dimension(800, 100)); // Set a fixed size for the visualizer
     }
 
+    /**
+     * Takes the exons of one gene of a gene model tree; they are already a
+     * sorted, contiguous range so nothing is searched.
+     */
+    public GeneVisualizer(GeneModelTree models, int gene) {
+        int row = models.getGeneRow(gene);
+        this.geneName = models.getGeneName(gene);
+        this.exons = new ArrayList<>(models.getExonCount(gene));
+        for (int i = 0; i < models.getExonCount(gene); i++) {
+            exons.add(new int[]{models.getExonStart(gene, i), models.getExonEnd(gene, i)});
+        }
+        this.geneStart = models.getFeatures().getStart(row);
+        this.geneEnd = models.getFeatures().getEnd(row);
+        setPreferredSize(new Dimension(800, 100));
+    }
+
     @Override
     public void paintComponent(Graphics g) {
         super.paintComponent(g);
-        Graphics2D g2d = (Graphics2D) g;
+        // Drawn off the EDT into a cached image; repaints only copy it
+        if (!renderer.paint(g, () -> this::render)) {
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, getWidth(), getHeight());
+        }
+    }
+
+    /**
+     * Draws the gene; runs on the renderer thread and only reads fields that
+     * do not change after construction.
+     */
+    private void render(Graphics2D g2d, int panelWidth, int panelHeight) {
 
         // Set background color
         g2d.setColor(Color.WHITE);
-        g2d.fillRect(0, 0, getWidth(), getHeight());
+        g2d.fillRect(0, 0, panelWidth, panelHeight);
 
         // Calculate scale factor (gene length to panel width)
         int geneLength = geneEnd - geneStart + 1;
         int padding = 20; // Padding from the edges
-        int usableWidth = getWidth() - 2 * padding;
+        int usableWidth = panelWidth - 2 * padding;
         double scale = (double) usableWidth / geneLength;
 
-        int yPosition = getHeight() / 2;
+        int yPosition = panelHeight / 2;
         int rectHeight = 20; // Height of the rectangle
-        int rectWidth = getWidth() - 2 * padding;
+        int rectWidth = panelWidth - 2 * padding;
 
-        g2d.setColor(Color.CYAN);
+        g2d.setColor(GENE_COLOR);
         g2d.fillRect(padding, yPosition - rectHeight / 2, rectWidth, rectHeight);
 
         // Draw exons
         if (exons != null) {
-            g2d.setColor(Color.BLUE);
+            g2d.setColor(EXON_COLOR);
             for (int[] exon : exons) {
                 int exonStart = exon[0];
                 int exonEnd = exon[1];
@@ -70,6 +102,6 @@ public class GeneVisualizer extends JPanel {
         g2d.setColor(Color.BLACK);
         g2d.drawString("Gene: " + geneName, padding, yPosition - 25);
         g2d.drawString("Start", padding, yPosition + 35);
-        g2d.drawString("End", getWidth() - padding - 60, yPosition + 35);
+        g2d.drawString("End", panelWidth - padding - 60, yPosition + 35);
     }
 }
@@ -8,14 +8,14 @@ import GenomeBrowser.utilities.TextPaneUtil;
 import au.com.bytecode.opencsv.CSVReader;
 import java.awt.Component;
 import java.awt.FileDialog;
-import java.io.BufferedReader;
-import java.io.FileReader;
+import java.io.File;
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import javax.swing.JFrame;
 import javax.swing.JOptionPane;
 import javax.swing.JTable;
@@ -29,7 +29,12 @@ import javax.swing.table.TableColumn;
  */
 public class GenomeFrame extends javax.swing.JFrame {
 
+    // Rows rendered per column when sizing the GFF table
+    private static final int COLUMN_WIDTH_SAMPLES = 64;
+
     private String fastaPath;
+    // GFF file being read into the annotation table, if any
+    private SwingWorker<GffFeatureStore, GffFeatureStore> gffLoad;
 
     public JFrame getOwnFrame() {
         return this;
@@ -55,39 +60,121 @@ public class GenomeFrame extends javax.swing.JFrame {
         }
     }
 
-    private Object[][] parseGffFile(String filePath) {
-        List<Object[]> dataList = new ArrayList<>();
-        try (BufferedReader br = new BufferedReader(new FileReader(filePath))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                if (line.startsWith("#")) {
-                    continue; // Skip comments and metadata
+    /**
+     * Reads a GFF file in the background and streams its features into the
+     * annotation table: the first rows show up as soon as they are parsed and
+     * the rest are appended a few times a second. A read error keeps the rows
+     * read until then and names the failing line.
+     */
+    private void loadGffFile(String filePath) {
+        if (gffLoad != null) {
+            gffLoad.cancel(false); // a newer file replaces the one still loading
+        }
+        long totalBytes = compressedSize(filePath);
+        // The gene models are built from this same store, so the file is read once
+        CompletableFuture<GffFeatureStore> allRows = new CompletableFuture<>();
+        GeneModelCache.put(filePath, allRows);
+        SwingWorker<GffFeatureStore, GffFeatureStore> load = new SwingWorker<GffFeatureStore, GffFeatureStore>() {
+            private volatile long bytesRead;
+            private volatile GffFeatureStore lastRows;
+            private boolean shown;
+
+            @Override
+            protected GffFeatureStore doInBackground() throws IOException {
+                try {
+                    GffFeatureStore features = GffFeatureStore.read(filePath, (rowsSoFar, consumed) -> {
+                        bytesRead = consumed;
+                        lastRows = rowsSoFar;
+                        publish(rowsSoFar);
+                        return !isCancelled();
+                    });
+                    if (!isCancelled()) {
+                        allRows.complete(features);
+                    }
+                    return features;
+                } catch (IOException | RuntimeException e) {
+                    allRows.completeExceptionally(e);
+                    throw e;
+                }
+            }
+
+            @Override
+            protected void process(List<GffFeatureStore> snapshots) {
+                if (gffLoad != this) {
+                    return;
                 }
-                String[] fields = line.split("\t");
-                if (fields.length < 9) {
-                    continue; // Ensure correct format
+                // Several snapshots may arrive at once; the newest covers the others
+                GffFeatureStore rowsSoFar = snapshots.get(snapshots.size() - 1);
+                if (!shown) {
+                    shown = true;
+                    tableViewerOverviewGtfTable.beginLoading(rowsSoFar);
+                    showGffTable(rowsSoFar);
+                } else {
+                    tableViewerOverviewGtfTable.appendFeatures(rowsSoFar);
                 }
-                // Parse attributes (GFF2 style: ID "..." format)
-                String attributes = fields[8].replace("\"", ""); // Remove double quotes
-
-                Object[] row = {
-                    fields[0], // Chromosome
-                    fields[1], // Source
-                    fields[2], // Feature Type
-                    Integer.parseInt(fields[3]), // Start Position
-                    Integer.parseInt(fields[4]), // End Position
-                    fields[5], // Score
-                    fields[6], // Strand
-                    fields[7], // Phase
-                    attributes // Attributes
-                };
-                dataList.add(row);
+                tableViewerOverviewGtfTable.setLoadProgress(bytesRead, totalBytes);
             }
+
+            @Override
+            protected void done() {
+                // Cancelled, possibly before it started: the rows are not all there
+                allRows.cancel(false);
+                if (gffLoad != this) {
+                    return;
+                }
+                gffLoad = null;
+                try {
+                    GffFeatureStore features = get();
+                    tableViewerOverviewGtfTable.finishLoading(features);
+                    showGffTable(features);
+                    buildGeneModels(features);
+                } catch (InterruptedException | ExecutionException e) {
+                    e.printStackTrace();
+                    if (lastRows != null) {
+                        tableViewerOverviewGtfTable.finishLoading(lastRows);
+                    }
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    JOptionPane.showMessageDialog(null, "Error reading GFF file!\n" + cause.getMessage(),
+                            "File Error", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        };
+        gffLoad = load;
+        load.execute();
+    }
+
+    /**
+     * Links the genes, transcripts and exons of a loaded file in the
+     * background, for the gene structure view of the annotation table.
+     */
+    private void buildGeneModels(GffFeatureStore features) {
+        new SwingWorker<GeneModelTree, Void>() {
+            @Override
+            protected GeneModelTree doInBackground() {
+                return GeneModelTree.build(features);
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    tableViewerOverviewGtfTable.setGeneModels(get());
+                } catch (InterruptedException | ExecutionException e) {
+                    e.printStackTrace();
+                }
+            }
+        }.execute();
+    }
+
+    /**
+     * Size of a plain file for the progress bar, or 0 for compressed files,
+     * whose uncompressed size is not known up front.
+     */
+    private static long compressedSize(String filePath) {
+        try {
+            return CompressedInput.detect(filePath) == CompressedInput.Format.PLAIN ? new File(filePath).length() : 0;
         } catch (IOException e) {
-            e.printStackTrace();
-            JOptionPane.showMessageDialog(null, "Error reading GFF file!", "File Error", JOptionPane.ERROR_MESSAGE);
+            return 0;
         }
-        return dataList.toArray(new Object[0][]);
     }
 
     /**
@@ -262,54 +349,61 @@ public class GenomeFrame extends javax.swing.JFrame {
         nameBox.setVisible(true);
         String namePath = processSelectedFile(nameBox);
 
-        // Validate file extension
-        if (namePath.endsWith(".gff")) {
+        // Validate file extension, gzip/bgzip compressed files are accepted too
+        if (CompressedInput.stripCompressionSuffix(namePath).endsWith(".gff")) {
             fileSelectedLabel.setText("Selected GFF file: " + nameBox.getFile());
         } else {
             JOptionPane.showMessageDialog(
                     this,
-                    "Invalid file type. Please select a valid .gff file.",
+                    "Invalid file type. Please select a valid .gff file (optionally .gz or .bgz compressed).",
                     "File Selection Error",
                     JOptionPane.ERROR_MESSAGE
             );
             return;
         }
+        // Parse GFF data into the columnar store, rows appear in the table as they are read
+        loadGffFile(namePath);
         geneExplorerOverview.setExplorerGffFilePath(namePath);
 
-        // Define GFF column headers
-        String[] columnHeaders = {
-            "Chromosome", "Source", "Feature", "Start", "End", "Score", "Strand", "Phase", "Attributes"
-        };
+    }//GEN-LAST:event_gtfFileUploadButtonActionPerformed
 
-        // Parse GFF data
-        Object[][] tableData = parseGffFile(namePath);
 
- 
-        // Update the JTable with parsed data
+    private void showGffTable(GffFeatureStore features) {
+        // Cells are read lazily from the store
         JTable tablePane = tableViewerOverviewGtfTable.getTablePane();
-        javax.swing.table.DefaultTableModel model = new javax.swing.table.DefaultTableModel(tableData, columnHeaders) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false; // Make table cells non-editable
-            }
-        };
-        tablePane.setModel(model);
         tablePane.setAutoResizeMode(JTable.AUTO_RESIZE_OFF); // Enable horizontal scrolling
 
-        // Adjust column widths dynamically
+        // Adjust column widths from a bounded sample of rows
+        adjustColumnWidths(tablePane, features);
+    }
+
+    /**
+     * Sizes the GFF table columns from the longest value of each column, as
+     * recorded by the parser, plus the first rows and rows spread evenly
+     * across the file. The number of rendered cells does not depend on the
+     * number of features.
+     */
+    private void adjustColumnWidths(JTable tablePane, GffFeatureStore features) {
+        int rowCount = tablePane.getRowCount();
+        int samples = Math.min(rowCount, COLUMN_WIDTH_SAMPLES);
         for (int i = 0; i < tablePane.getColumnCount(); i++) {
             TableColumn column = tablePane.getColumnModel().getColumn(i);
             int preferredWidth = 150; // Default width
-            for (int row = 0; row < tablePane.getRowCount(); row++) {
+            int longestRow = features.getLongestRow(column.getModelIndex());
+            for (int sample = -1; sample < samples; sample++) {
+                int row = sample < 0 ? longestRow
+                        : sample < samples / 2 ? sample // the rows shown first
+                        : (int) ((long) rowCount * sample / samples); // spread over the file
+                if (row < 0) {
+                    continue;
+                }
                 TableCellRenderer renderer = tablePane.getCellRenderer(row, i);
                 Component comp = tablePane.prepareRenderer(renderer, row, i);
                 preferredWidth = Math.max(comp.getPreferredSize().width, preferredWidth);
             }
             column.setPreferredWidth(preferredWidth);
         }
-
-    }//GEN-LAST:event_gtfFileUploadButtonActionPerformed
-
+    }
 
     private void fastaFileUploadButtonActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_fastaFileUploadButtonActionPerformed
         // TODO add your handling code here:
@@ -319,10 +413,12 @@ public class GenomeFrame extends javax.swing.JFrame {
 
         // Process the selected file
         String namePath = processSelectedFile(nameBox);
-        if (namePath != null && (namePath.endsWith(".fasta") || namePath.endsWith(".fa"))) {
+        String uncompressedName = namePath == null ? "" : CompressedInput.stripCompressionSuffix(namePath);
+        if (uncompressedName.endsWith(".fasta") || uncompressedName.endsWith(".fa")) {
             fastaPath = namePath;
             geneExplorerOverview.setExplorerFastaFilePath(fastaPath);
-            // Start background processing
+            // Start background processing, the sequence viewer's single pass
+            // also feeds the explorer and the statistics panel
             new SwingWorker<Void, Void>() {
                 @Override
                 protected Void doInBackground() {
@@ -348,7 +444,7 @@ public class GenomeFrame extends javax.swing.JFrame {
             // Handle invalid file selection
             JOptionPane.showMessageDialog(
                     this,
-                    "Invalid file type. Please select a valid fasta file.",
+                    "Invalid file type. Please select a valid fasta file (optionally .gz or .bgz compressed).",
                     "File Selection Error",
                     JOptionPane.ERROR_MESSAGE
             );
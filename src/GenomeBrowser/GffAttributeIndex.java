@@ -0,0 +1,126 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package GenomeBrowser;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Hash index from the values of one attribute tag (ID, Parent, gene_id, ...)
+ * to the rows of a {@link GffFeatureStore} carrying them. Built in one pass
+ * over the attribute bytes, for several tags at once if asked; no value is
+ * turned into a string. Each entry is
+ * a row, the value's hash and the next entry in its bucket, and a lookup
+ * confirms a hash match by reading the row's attribute bytes again.
+ *
+ * @author davidoluwasusi
+ */
+final class GffAttributeIndex {
+
+    private static final int[] NO_ROWS = new int[0];
+
+    private final GffFeatureStore features;
+    private final String tag;
+    private final int[] buckets;
+    private final int[] entryRows;
+    private final int[] entryHashes;
+    private final int[] entryNext;
+
+    private GffAttributeIndex(GffFeatureStore features, String tag, int[] rows, int[] hashes, int count) {
+        this.features = features;
+        this.tag = tag;
+        this.entryRows = rows;
+        this.entryHashes = hashes;
+        this.entryNext = new int[count];
+        this.buckets = new int[Integer.highestOneBit(Math.max(16, count * 2 - 1)) << 1];
+        Arrays.fill(buckets, -1);
+        // Insert backwards so every chain lists its rows in file order
+        for (int entry = count - 1; entry >= 0; entry--) {
+            int bucket = hashes[entry] & (buckets.length - 1);
+            entryNext[entry] = buckets[bucket];
+            buckets[bucket] = entry;
+        }
+    }
+
+    /**
+     * Indexes one or more tags in a single sweep: each row's attribute bytes
+     * are read once and every value goes to its tag's index.
+     *
+     * @return one index per tag, in the order of {@code tags}
+     */
+    static GffAttributeIndex[] build(GffFeatureStore features, String[] tags) {
+        int[][] rows = new int[tags.length][1024];
+        int[][] hashes = new int[tags.length][1024];
+        int[] counts = new int[tags.length];
+        for (int row = 0; row < features.size(); row++) {
+            byte[] page = features.getAttributePage(row);
+            int from = features.getAttributeStart(row);
+            int entryRow = row;
+            GffAttributes.forEachValue(page, from, from + features.getAttributeLength(row), tags, (tag, start, end) -> {
+                int count = counts[tag];
+                if (count == rows[tag].length) {
+                    rows[tag] = Arrays.copyOf(rows[tag], count * 2);
+                    hashes[tag] = Arrays.copyOf(hashes[tag], count * 2);
+                }
+                rows[tag][count] = entryRow;
+                hashes[tag][count] = GffAttributes.hash(page, start, end);
+                counts[tag] = count + 1;
+                return true;
+            });
+        }
+        GffAttributeIndex[] indexes = new GffAttributeIndex[tags.length];
+        for (int tag = 0; tag < tags.length; tag++) {
+            indexes[tag] = new GffAttributeIndex(features, tags[tag],
+                    Arrays.copyOf(rows[tag], counts[tag]), Arrays.copyOf(hashes[tag], counts[tag]), counts[tag]);
+        }
+        return indexes;
+    }
+
+    /**
+     * Rows having {@code value} among the values of the tag, in file order.
+     */
+    int[] find(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        int hash = GffAttributes.hash(bytes, 0, bytes.length);
+        int[] found = NO_ROWS;
+        int count = 0;
+        for (int entry = buckets[hash & (buckets.length - 1)]; entry >= 0; entry = entryNext[entry]) {
+            int row = entryRows[entry];
+            if (entryHashes[entry] != hash || (count > 0 && found[count - 1] == row)) {
+                continue;
+            }
+            int from = features.getAttributeStart(row);
+            if (GffAttributes.hasValue(features.getAttributePage(row), from, from + features.getAttributeLength(row), tag, bytes)) {
+                if (count == found.length) {
+                    found = Arrays.copyOf(found, Math.max(4, count * 2));
+                }
+                found[count++] = row;
+            }
+        }
+        return count == found.length ? found : Arrays.copyOf(found, count);
+    }
+
+    /**
+     * First row having {@code value[from, to)} as a value of the tag, or -1.
+     * Reads the value from a byte slice, e.g. a Parent value of another row,
+     * so joining on it creates no strings.
+     */
+    int findFirst(byte[] value, int from, int to) {
+        int hash = GffAttributes.hash(value, from, to);
+        for (int entry = buckets[hash & (buckets.length - 1)]; entry >= 0; entry = entryNext[entry]) {
+            int row = entryRows[entry];
+            int start = features.getAttributeStart(row);
+            if (entryHashes[entry] == hash && GffAttributes.hasValue(features.getAttributePage(row),
+                    start, start + features.getAttributeLength(row), tag, value, from, to)) {
+                return row;
+            }
+        }
+        return -1;
+    }
+
+    int getEntryCount() {
+        return entryRows.length;
+    }
+}
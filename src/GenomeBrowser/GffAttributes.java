@@ -0,0 +1,198 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package GenomeBrowser;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads tag values straight from the bytes of a GFF attribute column,
+ * without splitting it into strings. Both GFF3 ({@code ID=gene1;Parent=a,b})
+ * and GTF/GFF2 ({@code gene_id "g1"; transcript_id "t1";}) are understood;
+ * GFF3 values are split on commas and quotes around values are dropped.
+ *
+ * @author davidoluwasusi
+ */
+public final class GffAttributes {
+
+    public static final String ID = "ID";
+    public static final String NAME = "Name";
+    public static final String PARENT = "Parent";
+    public static final String GENE_ID = "gene_id";
+    public static final String TRANSCRIPT_ID = "transcript_id";
+
+    /**
+     * The tags worth a hash index; {@link GffFeatureStore} indexes them
+     * together, in one sweep over the attribute column.
+     */
+    static final String[] INDEXED_TAGS = {ID, NAME, PARENT, GENE_ID, TRANSCRIPT_ID};
+
+    /**
+     * Receives the bytes [start, end) of one value.
+     */
+    interface ValueConsumer {
+
+        /**
+         * @return false to stop at this value
+         */
+        boolean accept(int start, int end);
+    }
+
+    /**
+     * Receives the bytes [start, end) of one value of the tag at
+     * {@code tags[tag]}.
+     */
+    interface TagValueConsumer {
+
+        /**
+         * @return false to stop at this value
+         */
+        boolean accept(int tag, int start, int end);
+    }
+
+    private GffAttributes() {
+    }
+
+    /**
+     * Calls {@code consumer} for every value of {@code tag} in
+     * {@code bytes[from, to)}, in order.
+     */
+    static void forEachValue(byte[] bytes, int from, int to, String tag, ValueConsumer consumer) {
+        forEachValue(bytes, from, to, new String[]{tag}, (index, start, end) -> consumer.accept(start, end));
+    }
+
+    /**
+     * Calls {@code consumer} for every value of any of {@code tags} in
+     * {@code bytes[from, to)}, in order, reading the column once.
+     */
+    static void forEachValue(byte[] bytes, int from, int to, String[] tags, TagValueConsumer consumer) {
+        int i = from;
+        while (i < to) {
+            int fieldEnd = indexOf(bytes, i, to, (byte) ';');
+            int keyStart = skipSpaces(bytes, i, fieldEnd);
+            int keyEnd = keyStart;
+            while (keyEnd < fieldEnd && bytes[keyEnd] != '=' && bytes[keyEnd] != ' ') {
+                keyEnd++;
+            }
+            int tag = keyEnd < fieldEnd ? tagIndex(bytes, keyStart, keyEnd, tags) : -1;
+            if (tag >= 0) {
+                boolean gff3 = bytes[keyEnd] == '=';
+                int valueStart = skipSpaces(bytes, keyEnd + 1, fieldEnd);
+                int valueEnd = fieldEnd;
+                while (valueEnd > valueStart && bytes[valueEnd - 1] == ' ') {
+                    valueEnd--;
+                }
+                if (gff3) {
+                    // Multiple values are separated by commas
+                    for (int start = valueStart; start <= valueEnd; ) {
+                        int end = indexOf(bytes, start, valueEnd, (byte) ',');
+                        if (!acceptUnquoted(bytes, start, end, tag, consumer)) {
+                            return;
+                        }
+                        start = end + 1;
+                    }
+                } else if (!acceptUnquoted(bytes, valueStart, valueEnd, tag, consumer)) {
+                    return;
+                }
+            }
+            i = fieldEnd + 1;
+        }
+    }
+
+    /**
+     * First value of {@code tag}, or null when the tag is missing.
+     */
+    static String first(byte[] bytes, int from, int to, String tag) {
+        String[] value = new String[1];
+        forEachValue(bytes, from, to, tag, (start, end) -> {
+            value[0] = new String(bytes, start, end - start, StandardCharsets.UTF_8);
+            return false;
+        });
+        return value[0];
+    }
+
+    /**
+     * Whether one of the values of {@code tag} equals {@code value}.
+     */
+    static boolean hasValue(byte[] bytes, int from, int to, String tag, byte[] value) {
+        return hasValue(bytes, from, to, tag, value, 0, value.length);
+    }
+
+    /**
+     * Same as above, with the value given as {@code value[valueFrom, valueTo)}.
+     */
+    static boolean hasValue(byte[] bytes, int from, int to, String tag, byte[] value, int valueFrom, int valueTo) {
+        boolean[] found = new boolean[1];
+        forEachValue(bytes, from, to, tag, (start, end) -> {
+            found[0] = equals(bytes, start, end, value, valueFrom, valueTo);
+            return !found[0];
+        });
+        return found[0];
+    }
+
+    static int hash(byte[] bytes, int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + bytes[i];
+        }
+        return hash ^ hash >>> 16;
+    }
+
+    private static boolean acceptUnquoted(byte[] bytes, int start, int end, int tag, TagValueConsumer consumer) {
+        if (end - start >= 2 && bytes[start] == '"' && bytes[end - 1] == '"') {
+            start++;
+            end--;
+        }
+        return consumer.accept(tag, start, end);
+    }
+
+    private static int tagIndex(byte[] bytes, int start, int end, String[] tags) {
+        for (int tag = 0; tag < tags.length; tag++) {
+            if (matches(bytes, start, end, tags[tag])) {
+                return tag;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean equals(byte[] bytes, int start, int end, byte[] value, int valueFrom, int valueTo) {
+        if (end - start != valueTo - valueFrom) {
+            return false;
+        }
+        for (int i = 0; i < end - start; i++) {
+            if (bytes[start + i] != value[valueFrom + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean matches(byte[] bytes, int start, int end, String ascii) {
+        if (end - start != ascii.length()) {
+            return false;
+        }
+        for (int i = 0; i < ascii.length(); i++) {
+            if (bytes[start + i] != ascii.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int skipSpaces(byte[] bytes, int from, int to) {
+        while (from < to && bytes[from] == ' ') {
+            from++;
+        }
+        return from;
+    }
+
+    private static int indexOf(byte[] bytes, int from, int to, byte b) {
+        for (int i = from; i < to; i++) {
+            if (bytes[i] == b) {
+                return i;
+            }
+        }
+        return to;
+    }
+}
@@ -0,0 +1,541 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package GenomeBrowser;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Column-oriented store of the features of a GFF/GTF file. Every column is a
+ * primitive array indexed by row: seqid, source and type are codes into
+ * per-file dictionaries, coordinates are ints, strand and phase are single
+ * bytes, and the attribute text of all rows lives in one shared byte arena.
+ * A feature costs about 30 bytes plus its attribute text, instead of a
+ * boxed Object[] with nine Strings.
+ *
+ * @author davidoluwasusi
+ */
+public final class GffFeatureStore {
+
+    public static final String[] COLUMN_NAMES = {
+        "Chromosome", "Source", "Feature", "Start", "End", "Score", "Strand", "Phase", "Attributes"
+    };
+
+    private final String path;
+    private final int size;
+    private final List<String> seqids;
+    private final List<String> sources;
+    private final List<String> types;
+    private final int[] seqidCodes;
+    private final char[] sourceCodes;
+    private final char[] typeCodes;
+    private final int[] starts;
+    private final int[] ends;
+    private final float[] scores;
+    private final byte[] strands;
+    private final byte[] phases;
+    private final byte[][] attributePages;
+    private final long attributeBytes;
+    private final long[] attributeOffsets;
+    private final int[] attributeLengths;
+    private final int[] longestRows;
+    private final int[] maxLengths;
+    // Attribute tag -> index, built on first lookup (see findRows)
+    private final Map<String, GffAttributeIndex> attributeIndexes = new ConcurrentHashMap<>();
+
+    /**
+     * A store over the first {@code builder.size()} rows of a builder. When
+     * {@code trim} is false the columns are shared with the builder instead
+     * of copied: the builder only ever writes past the rows seen here and
+     * replaces an array when it grows, so the rows of the store never change.
+     */
+    private GffFeatureStore(String path, Builder builder, boolean trim) {
+        this.path = path;
+        this.size = builder.size;
+        this.seqids = builder.seqids.snapshot();
+        this.sources = builder.sources.snapshot();
+        this.types = builder.types.snapshot();
+        this.seqidCodes = trim ? Arrays.copyOf(builder.seqidCodes, size) : builder.seqidCodes;
+        this.sourceCodes = trim ? Arrays.copyOf(builder.sourceCodes, size) : builder.sourceCodes;
+        this.typeCodes = trim ? Arrays.copyOf(builder.typeCodes, size) : builder.typeCodes;
+        this.starts = trim ? Arrays.copyOf(builder.starts, size) : builder.starts;
+        this.ends = trim ? Arrays.copyOf(builder.ends, size) : builder.ends;
+        this.scores = trim ? Arrays.copyOf(builder.scores, size) : builder.scores;
+        this.strands = trim ? Arrays.copyOf(builder.strands, size) : builder.strands;
+        this.phases = trim ? Arrays.copyOf(builder.phases, size) : builder.phases;
+        this.attributePages = builder.attributes.pages();
+        this.attributeBytes = builder.attributes.getByteSize();
+        this.attributeOffsets = trim ? Arrays.copyOf(builder.attributeOffsets, size) : builder.attributeOffsets;
+        this.attributeLengths = trim ? Arrays.copyOf(builder.attributeLengths, size) : builder.attributeLengths;
+        this.longestRows = builder.longestRows.clone();
+        this.maxLengths = builder.maxLengths.clone();
+    }
+
+    /**
+     * Receives the rows of a file while it is being read.
+     */
+    public interface LoadListener {
+
+        /**
+         * @param rowsSoFar a store over the rows read so far, safe to hand to
+         *                  another thread
+         * @param bytesRead uncompressed bytes of the file consumed so far
+         * @return false to stop reading
+         */
+        boolean loaded(GffFeatureStore rowsSoFar, long bytesRead);
+    }
+
+    // First snapshot as soon as a screenful of rows is in, then a few per second
+    private static final int FIRST_SNAPSHOT_ROWS = 1000;
+    private static final long SNAPSHOT_INTERVAL_NANOS = 250_000_000L;
+
+    /**
+     * Reads every feature line of a plain, gzip or BGZF GFF file.
+     */
+    public static GffFeatureStore read(String gffPath) throws IOException {
+        return read(gffPath, null);
+    }
+
+    /**
+     * Reads a GFF file, handing snapshots of the rows read so far to
+     * {@code listener}: once the first {@value #FIRST_SNAPSHOT_ROWS} rows are
+     * in, then at most four times a second.
+     *
+     * @return every row, or the rows read until the listener asked to stop
+     * @throws IOException if the file cannot be read or a line is malformed;
+     *                     the message names the line
+     */
+    public static GffFeatureStore read(String gffPath, LoadListener listener) throws IOException {
+        Builder builder = new Builder();
+        long lineNumber = 0;
+        long lastSnapshot = System.nanoTime();
+        boolean firstSnapshot = true;
+        try (LineTokenizer tokens = LineTokenizer.open(gffPath)) {
+            while (tokens.nextLine()) {
+                lineNumber++;
+                try {
+                    builder.add(tokens);
+                } catch (NumberFormatException | IOException e) {
+                    throw new IOException("Line " + lineNumber + ": " + e.getMessage(), e);
+                }
+                if (listener == null || (lineNumber & 0xFF) != 0) {
+                    continue;
+                }
+                long now = System.nanoTime();
+                if (firstSnapshot ? builder.size() >= FIRST_SNAPSHOT_ROWS : now - lastSnapshot >= SNAPSHOT_INTERVAL_NANOS) {
+                    firstSnapshot = false;
+                    lastSnapshot = now;
+                    if (!listener.loaded(builder.snapshot(gffPath), tokens.getBytesConsumed())) {
+                        break;
+                    }
+                }
+            }
+        }
+        return builder.build(gffPath);
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public String getSeqid(int row) {
+        return seqids.get(seqidCodes[row]);
+    }
+
+    public String getSource(int row) {
+        return sources.get(sourceCodes[row]);
+    }
+
+    public String getType(int row) {
+        return types.get(typeCodes[row]);
+    }
+
+    public int getSeqidCode(int row) {
+        return seqidCodes[row];
+    }
+
+    public int getSourceCode(int row) {
+        return sourceCodes[row];
+    }
+
+    public int getTypeCode(int row) {
+        return typeCodes[row];
+    }
+
+    /**
+     * Distinct seqids in order of first appearance; index = code.
+     */
+    public List<String> getSeqids() {
+        return seqids;
+    }
+
+    public List<String> getSources() {
+        return sources;
+    }
+
+    public List<String> getTypes() {
+        return types;
+    }
+
+    public int getStart(int row) {
+        return starts[row];
+    }
+
+    public int getEnd(int row) {
+        return ends[row];
+    }
+
+    /**
+     * Score, or NaN when the column is "." or not a number.
+     */
+    public float getScore(int row) {
+        return scores[row];
+    }
+
+    public char getStrand(int row) {
+        return (char) strands[row];
+    }
+
+    public char getPhase(int row) {
+        return (char) phases[row];
+    }
+
+    /**
+     * Attribute column with double quotes removed (GFF2/GTF values are quoted).
+     */
+    public String getAttributes(int row) {
+        return ByteArena.getString(attributePages, attributeOffsets[row], attributeLengths[row], (byte) '"');
+    }
+
+    /**
+     * First value of an attribute tag (see {@link GffAttributes}), decoded
+     * from the stored bytes, or null when the row does not have the tag.
+     */
+    public String getAttribute(int row, String tag) {
+        int from = getAttributeStart(row);
+        return GffAttributes.first(getAttributePage(row), from, from + attributeLengths[row], tag);
+    }
+
+    /**
+     * Rows whose {@code tag} attribute has {@code value}, in file order. The
+     * first lookup of any of {@link GffAttributes#INDEXED_TAGS} indexes all
+     * of them in one pass over the rows (other tags get a pass of their
+     * own); later lookups are hash probes.
+     */
+    public int[] findRows(String tag, String value) {
+        return attributeIndex(tag).find(value);
+    }
+
+    GffAttributeIndex attributeIndex(String tag) {
+        GffAttributeIndex index = attributeIndexes.get(tag);
+        if (index != null) {
+            return index;
+        }
+        synchronized (attributeIndexes) {
+            index = attributeIndexes.get(tag);
+            if (index == null) {
+                String[] tags = Arrays.asList(GffAttributes.INDEXED_TAGS).contains(tag)
+                        ? GffAttributes.INDEXED_TAGS : new String[]{tag};
+                GffAttributeIndex[] built = GffAttributeIndex.build(this, tags);
+                for (int i = 0; i < tags.length; i++) {
+                    attributeIndexes.put(tags[i], built[i]);
+                }
+                index = attributeIndexes.get(tag);
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Row of the feature with the given GFF3 ID, or -1.
+     */
+    public int findById(String id) {
+        int[] rows = findRows(GffAttributes.ID, id);
+        return rows.length == 0 ? -1 : rows[0];
+    }
+
+    byte[] getAttributePage(int row) {
+        return attributePages[(int) (attributeOffsets[row] >>> 32)];
+    }
+
+    int getAttributeStart(int row) {
+        return (int) attributeOffsets[row];
+    }
+
+    int getAttributeLength(int row) {
+        return attributeLengths[row];
+    }
+
+    /**
+     * Cell value for the given column of {@link #COLUMN_NAMES}.
+     */
+    public Object getValue(int row, int column) {
+        switch (column) {
+            case 0:
+                return getSeqid(row);
+            case 1:
+                return getSource(row);
+            case 2:
+                return getType(row);
+            case 3:
+                return starts[row];
+            case 4:
+                return ends[row];
+            case 5:
+                return formatScore(scores[row]);
+            case 6:
+                return String.valueOf(getStrand(row));
+            case 7:
+                return String.valueOf(getPhase(row));
+            case 8:
+                return getAttributes(row);
+            default:
+                throw new IndexOutOfBoundsException("No column " + column);
+        }
+    }
+
+    /**
+     * Row whose text in the given column is the longest, as read from the
+     * file; -1 when the store is empty. Lets a view size its columns without
+     * looking at every row.
+     */
+    public int getLongestRow(int column) {
+        return longestRows[column];
+    }
+
+    /**
+     * Length in bytes of the longest text in the given column.
+     */
+    public int getMaxLength(int column) {
+        return maxLengths[column];
+    }
+
+    /**
+     * Approximate heap used by the columns and the attribute arena.
+     */
+    public long getByteSize() {
+        return size * (4L + 2 + 2 + 4 + 4 + 4 + 1 + 1 + 8 + 4) + attributeBytes;
+    }
+
+    static String formatScore(float score) {
+        if (Float.isNaN(score)) {
+            return ".";
+        }
+        if (score == (long) score) {
+            return String.valueOf((long) score);
+        }
+        return String.valueOf(score);
+    }
+
+    /**
+     * Distinct strings of one column, numbered in order of first appearance.
+     */
+    static final class Dictionary {
+
+        private final Map<String, Integer> codes = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+
+        int encode(String value) {
+            Integer code = codes.get(value);
+            if (code == null) {
+                code = values.size();
+                codes.put(value, code);
+                values.add(value);
+            }
+            return code;
+        }
+
+        /**
+         * The values so far, as a list that later additions do not affect.
+         */
+        List<String> snapshot() {
+            return Collections.unmodifiableList(Arrays.asList(values.toArray(new String[0])));
+        }
+    }
+
+    /**
+     * Append-only byte storage in 1 MB pages; an entry never crosses a page.
+     */
+    static final class ByteArena {
+
+        private static final int PAGE_SHIFT = 20;
+        private static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+
+        private final List<byte[]> pages = new ArrayList<>();
+        private byte[] page;
+        private int used;
+        private long byteSize;
+
+        long append(byte[] source, int from, int length) {
+            if (page == null || used + length > page.length) {
+                // Oversized entries get a page of their own
+                page = new byte[Math.max(PAGE_SIZE, length)];
+                pages.add(page);
+                used = 0;
+                byteSize += page.length;
+            }
+            System.arraycopy(source, from, page, used, length);
+            long offset = (long) (pages.size() - 1) << 32 | used;
+            used += length;
+            return offset;
+        }
+
+        /**
+         * The pages so far; entries already appended never move.
+         */
+        byte[][] pages() {
+            return pages.toArray(new byte[0][]);
+        }
+
+        static String getString(byte[][] pages, long offset, int length, byte skip) {
+            byte[] bytes = pages[(int) (offset >>> 32)];
+            int from = (int) offset;
+            int kept = 0;
+            for (int i = from; i < from + length; i++) {
+                if (bytes[i] != skip) {
+                    kept++;
+                }
+            }
+            if (kept == length) {
+                return new String(bytes, from, length, StandardCharsets.UTF_8);
+            }
+            byte[] filtered = new byte[kept];
+            kept = 0;
+            for (int i = from; i < from + length; i++) {
+                if (bytes[i] != skip) {
+                    filtered[kept++] = bytes[i];
+                }
+            }
+            return new String(filtered, StandardCharsets.UTF_8);
+        }
+
+        long getByteSize() {
+            return byteSize;
+        }
+    }
+
+    /**
+     * Growable columns filled one tokenized line at a time.
+     */
+    static final class Builder {
+
+        private int size;
+        private final Dictionary seqids = new Dictionary();
+        private final Dictionary sources = new Dictionary();
+        private final Dictionary types = new Dictionary();
+        private int[] seqidCodes = new int[1024];
+        private char[] sourceCodes = new char[1024];
+        private char[] typeCodes = new char[1024];
+        private int[] starts = new int[1024];
+        private int[] ends = new int[1024];
+        private float[] scores = new float[1024];
+        private byte[] strands = new byte[1024];
+        private byte[] phases = new byte[1024];
+        private final ByteArena attributes = new ByteArena();
+        private long[] attributeOffsets = new long[1024];
+        private int[] attributeLengths = new int[1024];
+        private final int[] longestRows = new int[COLUMN_NAMES.length];
+        private final int[] maxLengths = new int[COLUMN_NAMES.length];
+
+        Builder() {
+            Arrays.fill(longestRows, -1);
+        }
+
+        /**
+         * Adds the current line of the tokenizer if it is a feature line.
+         *
+         * @return false for comments and lines with fewer than nine columns
+         */
+        boolean add(LineTokenizer tokens) throws IOException {
+            if (tokens.startsWith('#') || tokens.split('\t') < 9) {
+                return false;
+            }
+            if (size == starts.length) {
+                grow();
+            }
+            seqidCodes[size] = seqids.encode(tokens.symbol(0));
+            sourceCodes[size] = smallCode(sources.encode(tokens.symbol(1)), "sources");
+            typeCodes[size] = smallCode(types.encode(tokens.symbol(2)), "feature types");
+            starts[size] = tokens.parseInt(3);
+            ends[size] = tokens.parseInt(4);
+            scores[size] = parseScore(tokens);
+            strands[size] = tokens.fieldLength(6) > 0 ? tokens.byteAt(6, 0) : (byte) '.';
+            phases[size] = tokens.fieldLength(7) > 0 ? tokens.byteAt(7, 0) : (byte) '.';
+            attributeOffsets[size] = attributes.append(tokens.buffer(), tokens.fieldStart(8), tokens.fieldLength(8));
+            attributeLengths[size] = tokens.fieldLength(8);
+            for (int column = 0; column < COLUMN_NAMES.length; column++) {
+                if (tokens.fieldLength(column) > maxLengths[column] || longestRows[column] < 0) {
+                    maxLengths[column] = tokens.fieldLength(column);
+                    longestRows[column] = size;
+                }
+            }
+            size++;
+            return true;
+        }
+
+        int size() {
+            return size;
+        }
+
+        GffFeatureStore build(String path) {
+            return new GffFeatureStore(path, this, true);
+        }
+
+        /**
+         * The rows added so far, without copying the columns. Cheap enough
+         * to take a few times a second while a file is being read.
+         */
+        GffFeatureStore snapshot(String path) {
+            return new GffFeatureStore(path, this, false);
+        }
+
+        /**
+         * Score column as a float; "." and anything that is not a number
+         * (an empty column, free text) become NaN rather than failing the load.
+         */
+        private static float parseScore(LineTokenizer tokens) {
+            if (tokens.fieldLength(5) == 0 || tokens.fieldEquals(5, ".")) {
+                return Float.NaN;
+            }
+            try {
+                return tokens.parseFloat(5);
+            } catch (NumberFormatException e) {
+                return Float.NaN;
+            }
+        }
+
+        private static char smallCode(int code, String what) throws IOException {
+            if (code > Character.MAX_VALUE) {
+                throw new IOException("Too many distinct " + what + " in GFF file");
+            }
+            return (char) code;
+        }
+
+        private void grow() {
+            int capacity = starts.length * 2;
+            seqidCodes = Arrays.copyOf(seqidCodes, capacity);
+            sourceCodes = Arrays.copyOf(sourceCodes, capacity);
+            typeCodes = Arrays.copyOf(typeCodes, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            ends = Arrays.copyOf(ends, capacity);
+            scores = Arrays.copyOf(scores, capacity);
+            strands = Arrays.copyOf(strands, capacity);
+            phases = Arrays.copyOf(phases, capacity);
+            attributeOffsets = Arrays.copyOf(attributeOffsets, capacity);
+            attributeLengths = Arrays.copyOf(attributeLengths, capacity);
+        }
+    }
+}
@@ -0,0 +1,245 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package GenomeBrowser;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Sort order and filters of the annotation table, turned into a row
+ * permutation of a {@link GffFeatureStore}. Filters on seqid, feature type
+ * and strand are bitsets over the store's dictionary codes, so testing a row
+ * is three bit lookups. Sorting packs each row's key and row number into a
+ * long and sorts the longs, which keeps the comparisons primitive and the
+ * sort stable. Nothing here touches Swing; {@link #apply} is meant to run in
+ * the background.
+ *
+ * @author davidoluwasusi
+ */
+public final class GffRowView {
+
+    // Columns of GffFeatureStore.COLUMN_NAMES that can be filtered
+    public static final int SEQID = 0;
+    public static final int TYPE = 2;
+    public static final int STRAND = 6;
+    public static final int ATTRIBUTES = 8;
+
+    // Strand codes are the strand byte itself
+    private static final int STRAND_CODES = 256;
+
+    private BitSet seqids;
+    private BitSet types;
+    private BitSet strands;
+    private int sortColumn = -1;
+    private boolean ascending = true;
+
+    public GffRowView copy() {
+        GffRowView copy = new GffRowView();
+        copy.seqids = seqids == null ? null : (BitSet) seqids.clone();
+        copy.types = types == null ? null : (BitSet) types.clone();
+        copy.strands = strands == null ? null : (BitSet) strands.clone();
+        copy.sortColumn = sortColumn;
+        copy.ascending = ascending;
+        return copy;
+    }
+
+    public static boolean isFilterable(int column) {
+        return column == SEQID || column == TYPE || column == STRAND;
+    }
+
+    public static boolean isSortable(int column) {
+        return column >= 0 && column < ATTRIBUTES;
+    }
+
+    /**
+     * Filter code of a row in one of the filterable columns.
+     */
+    public static int codeOf(GffFeatureStore features, int row, int column) {
+        switch (column) {
+            case SEQID:
+                return features.getSeqidCode(row);
+            case TYPE:
+                return features.getTypeCode(row);
+            case STRAND:
+                return features.getStrand(row) & 0xFF;
+            default:
+                throw new IllegalArgumentException("Column " + column + " cannot be filtered");
+        }
+    }
+
+    /**
+     * Keeps only rows whose value in {@code column} has the given code.
+     */
+    public void only(int column, int code) {
+        BitSet allowed = new BitSet();
+        allowed.set(code);
+        setFilter(column, allowed);
+    }
+
+    /**
+     * Drops rows whose value in {@code column} has the given code.
+     */
+    public void hide(GffFeatureStore features, int column, int code) {
+        BitSet allowed = getFilter(column);
+        if (allowed == null) {
+            allowed = new BitSet();
+            allowed.set(0, codeCount(features, column));
+        }
+        allowed.clear(code);
+        setFilter(column, allowed);
+    }
+
+    public void clearFilters() {
+        seqids = null;
+        types = null;
+        strands = null;
+    }
+
+    public boolean isFiltered() {
+        return seqids != null || types != null || strands != null;
+    }
+
+    public int getSortColumn() {
+        return sortColumn;
+    }
+
+    public boolean isAscending() {
+        return ascending;
+    }
+
+    /**
+     * Sorts on {@code column}, or restores file order when it is -1.
+     */
+    public void setSort(int column, boolean ascending) {
+        this.sortColumn = isSortable(column) ? column : -1;
+        this.ascending = ascending;
+    }
+
+    /**
+     * Rows of the store that pass the filters, in sort order, or null when
+     * the view is the store itself (no filter, file order).
+     */
+    public int[] apply(GffFeatureStore features) {
+        if (!isFiltered() && sortColumn < 0) {
+            return null;
+        }
+        int[] rows = filter(features);
+        if (sortColumn >= 0) {
+            sort(features, rows);
+        }
+        return rows;
+    }
+
+    private int[] filter(GffFeatureStore features) {
+        int size = features.size();
+        int[] rows = new int[size];
+        int count = 0;
+        for (int row = 0; row < size; row++) {
+            if ((seqids == null || seqids.get(features.getSeqidCode(row)))
+                    && (types == null || types.get(features.getTypeCode(row)))
+                    && (strands == null || strands.get(features.getStrand(row) & 0xFF))) {
+                rows[count++] = row;
+            }
+        }
+        return count == size ? rows : Arrays.copyOf(rows, count);
+    }
+
+    private void sort(GffFeatureStore features, int[] rows) {
+        int[] ranks = null;
+        if (sortColumn == SEQID || sortColumn == 1 || sortColumn == TYPE) {
+            // Dictionary codes follow file order; sort by the rank of the string instead
+            ranks = ranks(sortColumn == SEQID ? features.getSeqids()
+                    : sortColumn == TYPE ? features.getTypes() : features.getSources());
+        }
+        long[] keys = new long[rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            int key = key(features, rows[i], ranks);
+            // High half orders by key, low half keeps equal keys in file order
+            keys[i] = (long) (ascending ? key : ~key) << 32 | rows[i];
+        }
+        Arrays.parallelSort(keys);
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = (int) keys[i];
+        }
+    }
+
+    private int key(GffFeatureStore features, int row, int[] ranks) {
+        switch (sortColumn) {
+            case SEQID:
+                return ranks[features.getSeqidCode(row)];
+            case 1:
+                return ranks[features.getSourceCode(row)];
+            case TYPE:
+                return ranks[features.getTypeCode(row)];
+            case 3:
+                return features.getStart(row);
+            case 4:
+                return features.getEnd(row);
+            case 5:
+                // Float bits ordered as ints; "." (NaN) sorts after every score
+                int bits = Float.floatToIntBits(features.getScore(row));
+                return bits ^ (bits >> 31 & Integer.MAX_VALUE);
+            case STRAND:
+                return features.getStrand(row);
+            default:
+                return features.getPhase(row);
+        }
+    }
+
+    private static int[] ranks(List<String> values) {
+        Integer[] order = new Integer[values.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparing(values::get));
+        int[] ranks = new int[order.length];
+        for (int rank = 0; rank < order.length; rank++) {
+            ranks[order[rank]] = rank;
+        }
+        return ranks;
+    }
+
+    private static int codeCount(GffFeatureStore features, int column) {
+        switch (column) {
+            case SEQID:
+                return features.getSeqids().size();
+            case TYPE:
+                return features.getTypes().size();
+            default:
+                return STRAND_CODES;
+        }
+    }
+
+    private BitSet getFilter(int column) {
+        switch (column) {
+            case SEQID:
+                return seqids;
+            case TYPE:
+                return types;
+            case STRAND:
+                return strands;
+            default:
+                throw new IllegalArgumentException("Column " + column + " cannot be filtered");
+        }
+    }
+
+    private void setFilter(int column, BitSet allowed) {
+        switch (column) {
+            case SEQID:
+                seqids = allowed;
+                break;
+            case TYPE:
+                types = allowed;
+                break;
+            case STRAND:
+                strands = allowed;
+                break;
+            default:
+                throw new IllegalArgumentException("Column " + column + " cannot be filtered");
+        }
+    }
+}
@@ -0,0 +1,464 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package GenomeBrowser;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Sorts a GFF/GTF file by (seqid, start, end) with a bounded amount of
+ * memory, so annotations far larger than the heap can be indexed.
+ *
+ * Feature lines are collected in a byte buffer until the memory budget is
+ * used, sorted there and written out as a sorted run in a temp file. The runs
+ * are then merged k at a time into the output. Comment and directive lines
+ * go first, in input order; a trailing ##FASTA section is copied unchanged to
+ * the end. Equal keys keep their input order. Run with:
+ * <pre>
+ * java -cp build/classes GenomeBrowser.GffSorter in.gff[.gz] out.gff [memory MB]
+ * </pre>
+ *
+ * @author davidoluwasusi
+ */
+public class GffSorter {
+
+    public static final long DEFAULT_MEMORY_BYTES = 512L << 20;
+    // Runs merged in one pass; more runs are merged in several passes
+    private static final int MAX_FAN_IN = 64;
+    // Offset, length, seqid code, start and end arrays, per slot
+    private static final int LINE_ARRAY_BYTES = 20;
+    // Order and merge scratch arrays allocated by writeRun, per line
+    private static final int SORT_BYTES_PER_LINE = 8;
+    // Map entry, boxed code, name list slot and String header per distinct
+    // seqid, plus the boxed and ranked copies writeRun sorts them with
+    private static final int SEQID_BYTES = 112;
+    // Largest byte[] the JVM reliably allocates
+    private static final int MAX_ARRAY_LENGTH = Integer.MAX_VALUE - 8;
+    private static final int OUTPUT_BUFFER = 1 << 16;
+
+    private final long memoryBytes;
+    private int runCount;
+
+    public GffSorter() {
+        this(DEFAULT_MEMORY_BYTES);
+    }
+
+    /**
+     * @param memoryBytes budget for a run: the line bytes, their sort keys
+     *                    and the arrays sorting them, as allocated; the JVM
+     *                    needs some headroom above it
+     */
+    public GffSorter(long memoryBytes) {
+        this.memoryBytes = Math.max(1 << 20, memoryBytes);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: GffSorter <input.gff[.gz]> <output.gff> [memory MB]");
+            System.exit(1);
+        }
+        long memory = args.length > 2 ? Long.parseLong(args[2]) << 20 : DEFAULT_MEMORY_BYTES;
+        GffSorter sorter = new GffSorter(memory);
+        long start = System.nanoTime();
+        sorter.sort(args[0], args[1]);
+        System.out.printf("Sorted %s into %s with %d run(s) in %.1f s%n", args[0], args[1],
+                sorter.getRunCount(), (System.nanoTime() - start) / 1e9);
+    }
+
+    /**
+     * Number of sorted runs written by the last {@link #sort}; 1 means the
+     * input fit in memory.
+     */
+    public int getRunCount() {
+        return runCount;
+    }
+
+    /**
+     * Writes the lines of {@code inputPath} (plain, gzip or BGZF) sorted to
+     * {@code outputPath}. The output is written next to its final name and
+     * moved into place at the end.
+     */
+    public void sort(String inputPath, String outputPath) throws IOException {
+        File output = new File(outputPath).getAbsoluteFile();
+        File directory = Files.createTempDirectory("gff-sort").toFile();
+        List<File> runs = new ArrayList<>();
+        ByteArrayList header = new ByteArrayList();
+        try {
+            File fastaFile = new File(directory, "fasta");
+            splitIntoRuns(inputPath, directory, runs, header, fastaFile);
+            runCount = runs.size();
+
+            // Merge passes until one pass can merge everything
+            int pass = 0;
+            while (runs.size() > MAX_FAN_IN) {
+                List<File> merged = new ArrayList<>();
+                for (int i = 0; i < runs.size(); i += MAX_FAN_IN) {
+                    File run = new File(directory, "pass" + pass + "-" + merged.size());
+                    try (OutputStream out = new BufferedOutputStream(new FileOutputStream(run), OUTPUT_BUFFER)) {
+                        merge(runs.subList(i, Math.min(runs.size(), i + MAX_FAN_IN)), out);
+                    }
+                    merged.add(run);
+                }
+                for (File run : runs) {
+                    run.delete();
+                }
+                runs = merged;
+                pass++;
+            }
+
+            File temporary = File.createTempFile(output.getName(), ".tmp", output.getParentFile());
+            try (OutputStream out = new BufferedOutputStream(new FileOutputStream(temporary), OUTPUT_BUFFER)) {
+                out.write(header.bytes, 0, header.size);
+                merge(runs, out);
+                if (fastaFile.exists()) {
+                    Files.copy(fastaFile.toPath(), out);
+                }
+            } catch (IOException e) {
+                temporary.delete();
+                throw e;
+            }
+            Files.move(temporary.toPath(), output.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            File[] files = directory.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    file.delete();
+                }
+            }
+            directory.delete();
+        }
+    }
+
+    /**
+     * Reads the input once, writing a sorted run whenever the buffered lines
+     * reach the memory budget.
+     */
+    private void splitIntoRuns(String inputPath, File directory, List<File> runs, ByteArrayList header,
+            File fastaFile) throws IOException {
+        RunBuffer buffer = new RunBuffer(memoryBytes);
+        try (LineTokenizer tokens = LineTokenizer.open(inputPath)) {
+            while (tokens.nextLine()) {
+                if (tokens.startsWith('#')) {
+                    if (tokens.line().startsWith("##FASTA")) {
+                        copyRest(tokens, fastaFile);
+                        break;
+                    }
+                    // "###" only marks that earlier features are complete; sorting moves them anyway
+                    if (!tokens.line().equals("###")) {
+                        header.add(tokens.buffer(), tokens.lineStart(), tokens.lineLength());
+                        header.add((byte) '\n');
+                    }
+                    continue;
+                }
+                if (tokens.isBlank() || tokens.split('\t') < 9) {
+                    continue;
+                }
+                if (!buffer.add(tokens)) {
+                    runs.add(buffer.writeRun(new File(directory, "run" + runs.size())));
+                    buffer.clear();
+                    buffer.add(tokens);
+                }
+            }
+        }
+        if (buffer.size() > 0 || runs.isEmpty()) {
+            runs.add(buffer.writeRun(new File(directory, "run" + runs.size())));
+        }
+    }
+
+    private static void copyRest(LineTokenizer tokens, File target) throws IOException {
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(target), OUTPUT_BUFFER)) {
+            do {
+                out.write(tokens.buffer(), tokens.lineStart(), tokens.lineLength());
+                out.write('\n');
+            } while (tokens.nextLine());
+        }
+    }
+
+    /**
+     * k-way merge of sorted runs; ties go to the earlier run, which keeps the
+     * sort stable.
+     */
+    private static void merge(List<File> runs, OutputStream out) throws IOException {
+        PriorityQueue<RunReader> queue = new PriorityQueue<>(Math.max(1, runs.size()));
+        List<RunReader> readers = new ArrayList<>();
+        try {
+            for (int i = 0; i < runs.size(); i++) {
+                RunReader reader = new RunReader(runs.get(i), i);
+                readers.add(reader);
+                if (reader.advance()) {
+                    queue.add(reader);
+                }
+            }
+            while (!queue.isEmpty()) {
+                RunReader reader = queue.poll();
+                reader.writeLine(out);
+                if (reader.advance()) {
+                    queue.add(reader);
+                }
+            }
+        } finally {
+            for (RunReader reader : readers) {
+                reader.close();
+            }
+        }
+    }
+
+    /**
+     * Feature lines of one run, held as bytes plus primitive sort keys.
+     */
+    private static final class RunBuffer {
+
+        private final long memoryBytes;
+        private byte[] bytes;
+        private int used;
+        private int size;
+        private int[] offsets = new int[1024];
+        private int[] lengths = new int[1024];
+        private int[] seqidCodes = new int[1024];
+        private int[] starts = new int[1024];
+        private int[] ends = new int[1024];
+        private final Map<String, Integer> seqids = new HashMap<>();
+        private final List<String> seqidNames = new ArrayList<>();
+        private long seqidBytes;
+
+        RunBuffer(long memoryBytes) {
+            this.memoryBytes = memoryBytes;
+            this.bytes = new byte[(int) Math.min(1 << 20, memoryBytes / 4)];
+        }
+
+        int size() {
+            return size;
+        }
+
+        /**
+         * Adds a line if the run, counted by what it allocates (grown arrays
+         * included), stays within the budget and the byte array limit.
+         *
+         * @return false when the line does not fit; an empty buffer always
+         *         takes the line
+         */
+        boolean add(LineTokenizer tokens) {
+            int length = tokens.lineLength();
+            long needed = (long) used + length;
+            if (size > 0 && needed > MAX_ARRAY_LENGTH) {
+                return false;
+            }
+            String seqid = tokens.symbol(0);
+            long newSeqidBytes = seqids.containsKey(seqid) ? 0 : SEQID_BYTES + 2L * seqid.length();
+            long keyBytes = seqidBytes + newSeqidBytes + (size + 1L) * SORT_BYTES_PER_LINE;
+
+            // Arrays grow by doubling, but never past what the budget leaves them
+            long lineCapacity = offsets.length;
+            if (size == lineCapacity) {
+                long room = (memoryBytes - Math.max(bytes.length, needed) - keyBytes) / LINE_ARRAY_BYTES;
+                lineCapacity = Math.max(size + 1L, Math.min(Math.min(size * 2L, room), MAX_ARRAY_LENGTH));
+            }
+            long byteCapacity = bytes.length;
+            if (needed > byteCapacity) {
+                long room = memoryBytes - lineCapacity * LINE_ARRAY_BYTES - keyBytes;
+                byteCapacity = Math.max(needed, Math.min(Math.min(bytes.length * 2L, room), MAX_ARRAY_LENGTH));
+            }
+            if (size > 0 && byteCapacity + lineCapacity * LINE_ARRAY_BYTES + keyBytes > memoryBytes) {
+                return false;
+            }
+
+            if (byteCapacity > bytes.length) {
+                bytes = Arrays.copyOf(bytes, (int) byteCapacity);
+            }
+            if (lineCapacity > offsets.length) {
+                int capacity = (int) lineCapacity;
+                offsets = Arrays.copyOf(offsets, capacity);
+                lengths = Arrays.copyOf(lengths, capacity);
+                seqidCodes = Arrays.copyOf(seqidCodes, capacity);
+                starts = Arrays.copyOf(starts, capacity);
+                ends = Arrays.copyOf(ends, capacity);
+            }
+            Integer code = seqids.get(seqid);
+            if (code == null) {
+                code = seqidNames.size();
+                seqids.put(seqid, code);
+                seqidNames.add(seqid);
+                seqidBytes += newSeqidBytes;
+            }
+            System.arraycopy(tokens.buffer(), tokens.lineStart(), bytes, used, length);
+            offsets[size] = used;
+            lengths[size] = length;
+            seqidCodes[size] = code;
+            starts[size] = parseCoordinate(tokens, 3);
+            ends[size] = parseCoordinate(tokens, 4);
+            used += length;
+            size++;
+            return true;
+        }
+
+        void clear() {
+            used = 0;
+            size = 0;
+            seqids.clear();
+            seqidNames.clear();
+            seqidBytes = 0;
+        }
+
+        File writeRun(File file) throws IOException {
+            // Codes follow first appearance; rank them by name so runs agree on the order
+            Integer[] byName = new Integer[seqidNames.size()];
+            for (int i = 0; i < byName.length; i++) {
+                byName[i] = i;
+            }
+            Arrays.sort(byName, (a, b) -> seqidNames.get(a).compareTo(seqidNames.get(b)));
+            int[] ranks = new int[byName.length];
+            for (int rank = 0; rank < byName.length; rank++) {
+                ranks[byName[rank]] = rank;
+            }
+            int[] order = new int[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+            }
+            mergeSort(order, new int[size], 0, size, ranks);
+
+            try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file), OUTPUT_BUFFER)) {
+                for (int i : order) {
+                    out.write(bytes, offsets[i], lengths[i]);
+                    out.write('\n');
+                }
+            }
+            return file;
+        }
+
+        private int compare(int a, int b, int[] ranks) {
+            int c = Integer.compare(ranks[seqidCodes[a]], ranks[seqidCodes[b]]);
+            if (c == 0) {
+                c = Integer.compare(starts[a], starts[b]);
+            }
+            if (c == 0) {
+                c = Integer.compare(ends[a], ends[b]);
+            }
+            return c;
+        }
+
+        /**
+         * Stable merge sort of line indexes on primitive keys.
+         */
+        private void mergeSort(int[] order, int[] scratch, int from, int to, int[] ranks) {
+            if (to - from < 2) {
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            mergeSort(order, scratch, from, middle, ranks);
+            mergeSort(order, scratch, middle, to, ranks);
+            if (compare(order[middle - 1], order[middle], ranks) <= 0) {
+                return; // already in order, common for partly sorted input
+            }
+            System.arraycopy(order, from, scratch, from, to - from);
+            int left = from;
+            int right = middle;
+            for (int i = from; i < to; i++) {
+                if (right >= to || (left < middle && compare(scratch[left], scratch[right], ranks) <= 0)) {
+                    order[i] = scratch[left++];
+                } else {
+                    order[i] = scratch[right++];
+                }
+            }
+        }
+    }
+
+    /**
+     * Current line of a sorted run and its key.
+     */
+    private static final class RunReader implements Comparable<RunReader> {
+
+        private final LineTokenizer tokens;
+        private final int index;
+        private String seqid;
+        private int start;
+        private int end;
+
+        RunReader(File run, int index) throws IOException {
+            this.tokens = LineTokenizer.open(run.getPath());
+            this.index = index;
+        }
+
+        boolean advance() throws IOException {
+            if (!tokens.nextLine()) {
+                return false;
+            }
+            tokens.split('\t');
+            seqid = tokens.symbol(0);
+            start = parseCoordinate(tokens, 3);
+            end = parseCoordinate(tokens, 4);
+            return true;
+        }
+
+        void writeLine(OutputStream out) throws IOException {
+            out.write(tokens.buffer(), tokens.lineStart(), tokens.lineLength());
+            out.write('\n');
+        }
+
+        @Override
+        public int compareTo(RunReader other) {
+            int c = seqid.compareTo(other.seqid);
+            if (c == 0) {
+                c = Integer.compare(start, other.start);
+            }
+            if (c == 0) {
+                c = Integer.compare(end, other.end);
+            }
+            return c != 0 ? c : Integer.compare(index, other.index);
+        }
+
+        void close() throws IOException {
+            tokens.close();
+        }
+    }
+
+    /**
+     * Coordinate column, with malformed values sorted first rather than
+     * failing a long sort.
+     */
+    private static int parseCoordinate(LineTokenizer tokens, int field) {
+        try {
+            return tokens.parseInt(field);
+        } catch (NumberFormatException e) {
+            return Integer.MIN_VALUE;
+        }
+    }
+
+    /**
+     * Growable byte array for the header lines.
+     */
+    private static final class ByteArrayList {
+
+        private byte[] bytes = new byte[256];
+        private int size;
+
+        void add(byte b) {
+            ensure(1);
+            bytes[size++] = b;
+        }
+
+        void add(byte[] source, int from, int length) {
+            ensure(length);
+            System.arraycopy(source, from, bytes, size, length);
+            size += length;
+        }
+
+        private void ensure(int extra) {
+            if (size + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(size + extra, bytes.length * 2));
+            }
+        }
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package GenomeBrowser;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.swing.table.AbstractTableModel;
+
+/**
+ * Read-only table model over a {@link GffFeatureStore}. Nothing is copied
+ * when the model is created: cells are formatted on demand, a page of rows at
+ * a time, and only the last few pages are kept. Memory and
+ * {@code JTable.setModel} time therefore do not depend on the number of
+ * features; a repaint only formats the rows in view.
+ *
+ * A sorted or filtered view is a permutation of store rows computed by
+ * {@link GffRowView} and swapped in with {@link #setRows}. While a file is
+ * still being read, {@link #append} grows the model with newer snapshots.
+ *
+ * @author davidoluwasusi
+ */
+public class GffTableModel extends AbstractTableModel {
+
+    private static final int PAGE_ROWS = 256;
+    // Enough pages for a tall viewport plus the rows around it
+    private static final int MAX_PAGES = 8;
+
+    private GffFeatureStore features;
+    // Store row of each table row, or null for file order
+    private int[] rows;
+    private final Map<Integer, Object[][]> pages = new LinkedHashMap<Integer, Object[][]>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Object[][]> eldest) {
+            return size() > MAX_PAGES;
+        }
+    };
+
+    public GffTableModel(GffFeatureStore features) {
+        this.features = features;
+    }
+
+    public GffFeatureStore getFeatures() {
+        return features;
+    }
+
+    /**
+     * Replaces the store with a later snapshot of the same file and tells the
+     * table about the new rows. Only valid while the rows are in file order.
+     * Must be called on the EDT.
+     */
+    public void append(GffFeatureStore moreFeatures) {
+        if (rows != null) {
+            throw new IllegalStateException("Cannot append to a sorted or filtered view");
+        }
+        int oldCount = features.size();
+        features = moreFeatures;
+        // The last page may have been formatted while it was only partly filled
+        pages.remove(oldCount / PAGE_ROWS);
+        if (moreFeatures.size() > oldCount) {
+            fireTableRowsInserted(oldCount, moreFeatures.size() - 1);
+        }
+    }
+
+    /**
+     * Replaces the rows shown, e.g. with a sorted or filtered permutation.
+     * Must be called on the EDT.
+     *
+     * @param rows store rows in display order, or null for every row in file order
+     */
+    public void setRows(int[] rows) {
+        this.rows = rows;
+        pages.clear();
+        fireTableDataChanged();
+    }
+
+    /**
+     * Store row shown at a table row.
+     */
+    public int getStoreRow(int row) {
+        return rows == null ? row : rows[row];
+    }
+
+    @Override
+    public int getRowCount() {
+        return rows == null ? features.size() : rows.length;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return GffFeatureStore.COLUMN_NAMES.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return GffFeatureStore.COLUMN_NAMES[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        // Start and End are numbers so they render right-aligned
+        return column == 3 || column == 4 ? Integer.class : String.class;
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        return page(row / PAGE_ROWS)[row % PAGE_ROWS][column];
+    }
+
+    private Object[][] page(int index) {
+        Object[][] page = pages.get(index);
+        if (page == null) {
+            int first = index * PAGE_ROWS;
+            int count = Math.min(PAGE_ROWS, getRowCount() - first);
+            page = new Object[count][];
+            for (int i = 0; i < count; i++) {
+                Object[] cells = new Object[GffFeatureStore.COLUMN_NAMES.length];
+                for (int column = 0; column < cells.length; column++) {
+                    cells[column] = features.getValue(getStoreRow(first + i), column);
+                }
+                page[i] = cells;
+            }
+            pages.put(index, page);
+        }
+        return page;
+    }
+}
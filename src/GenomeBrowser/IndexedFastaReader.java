@@ -0,0 +1,122 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package GenomeBrowser;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Random access to regions of a FASTA file through its {@link FastaIndex}.
+ * A fetch seeks straight to the first requested base and only touches the
+ * lines that hold the region. BGZF files are supported; offsets in the index
+ * are then uncompressed offsets, as with samtools faidx.
+ *
+ * @author davidoluwasusi
+ */
+public class IndexedFastaReader implements Closeable {
+
+    private static final int STREAM_BUFFER_SIZE = 1 << 20;
+
+    private final FastaIndex index;
+    private final ByteSource reader;
+
+    public IndexedFastaReader(String fastaPath, FastaIndex index) throws IOException {
+        this.index = index;
+        // Plain files are mapped; BGZF files seek through their block index
+        this.reader = CompressedInput.openRandomAccess(fastaPath);
+    }
+
+    public FastaIndex getIndex() {
+        return index;
+    }
+
+    /**
+     * Bases {@code start} (inclusive) to {@code end} (exclusive) of a record,
+     * 0-based, with line endings removed.
+     */
+    public String fetch(String name, long start, long end) throws IOException {
+        FastaIndex.Entry entry = index.getEntry(name);
+        if (entry == null) {
+            throw new IllegalArgumentException("Unknown sequence: " + name);
+        }
+        end = Math.min(end, entry.length);
+        if (start < 0 || start > end) {
+            throw new IndexOutOfBoundsException("Range " + start + "-" + end + " outside " + name);
+        }
+        if (start == end) {
+            return "";
+        }
+
+        long first = entry.offsetOf(start);
+        long last = entry.offsetOf(end - 1);
+        byte[] raw = new byte[Math.toIntExact(last - first + 1)];
+        reader.read(first, raw, 0, raw.length);
+
+        // Drop the line endings that fall inside the region
+        char[] bases = new char[Math.toIntExact(end - start)];
+        int count = 0;
+        for (int i = 0; i < raw.length && count < bases.length; i++) {
+            byte b = raw[i];
+            if (b != '\n' && b != '\r') {
+                bases[count++] = (char) (b & 0xFF);
+            }
+        }
+        return new String(bases, 0, count);
+    }
+
+    /**
+     * Streams bases {@code start} to {@code end} of a record to a listener in
+     * bounded pieces, so a whole scaffold can be packed without building it
+     * as one String first.
+     */
+    public void stream(String name, long start, long end, FastaIngestor.BaseListener listener) throws IOException {
+        FastaIndex.Entry entry = index.getEntry(name);
+        if (entry == null) {
+            throw new IllegalArgumentException("Unknown sequence: " + name);
+        }
+        end = Math.min(end, entry.length);
+        listener.onHeader(name);
+        if (start >= end) {
+            return;
+        }
+        streamBases(reader, entry.offsetOf(start), entry.offsetOf(end - 1) + 1, listener);
+    }
+
+    /**
+     * Streams the bytes {@code first} to {@code last} of a source to a
+     * listener with line endings removed, in pieces of at most
+     * {@link #STREAM_BUFFER_SIZE} bytes.
+     */
+    static void streamBases(ByteSource reader, long first, long last, FastaIngestor.BaseListener listener) throws IOException {
+        if (first >= last) {
+            return;
+        }
+        byte[] raw = new byte[(int) Math.min(STREAM_BUFFER_SIZE, last - first)];
+        for (long offset = first; offset < last; ) {
+            int count = (int) Math.min(raw.length, last - offset);
+            reader.read(offset, raw, 0, count);
+            int runStart = -1;
+            for (int i = 0; i < count; i++) {
+                if (raw[i] == '\n' || raw[i] == '\r') {
+                    if (runStart >= 0) {
+                        listener.onBases(raw, runStart, i);
+                        runStart = -1;
+                    }
+                } else if (runStart < 0) {
+                    runStart = i;
+                }
+            }
+            if (runStart >= 0) {
+                listener.onBases(raw, runStart, count);
+            }
+            offset += count;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
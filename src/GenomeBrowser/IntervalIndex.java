@@ -0,0 +1,231 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package GenomeBrowser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.function.ToIntFunction;
+
+/**
+ * Static interval index over the features of one sequence, answering
+ * overlap, containment and point queries in O(log n + k).
+ *
+ * Features are kept in an array sorted by start, which doubles as an implicit
+ * balanced binary tree (the layout used by cgranges): the node at index i has
+ * level k when its lowest k bits are set, and every node stores the largest
+ * end in its subtree. A query walks down from the root and skips every
+ * subtree whose largest end lies before the query. Coordinates are 1-based
+ * and closed, as in GFF.
+ *
+ * @author davidoluwasusi
+ */
+public final class IntervalIndex<T> {
+
+    // Subtrees at or below this level are scanned linearly
+    private static final int LEAF_LEVEL = 3;
+
+    private final List<T> items;
+    private final int[] starts;
+    private final int[] ends;
+    private final int[] maxEnds;
+    private final int rootLevel;
+    private final int maxEnd;
+
+    private IntervalIndex(List<T> items, int[] starts, int[] ends) {
+        this.items = items;
+        this.starts = starts;
+        this.ends = ends;
+        this.maxEnds = new int[starts.length];
+        this.rootLevel = buildMaxEnds();
+        this.maxEnd = Arrays.stream(ends).max().orElse(0);
+    }
+
+    /**
+     * Builds the index; the features are sorted by start (then end) on the way.
+     */
+    public static <T> IntervalIndex<T> of(List<T> features, ToIntFunction<T> start, ToIntFunction<T> end) {
+        List<T> sorted = new ArrayList<>(features);
+        sorted.sort(Comparator.comparingInt(start).thenComparingInt(end));
+        int[] starts = new int[sorted.size()];
+        int[] ends = new int[sorted.size()];
+        for (int i = 0; i < starts.length; i++) {
+            starts[i] = start.applyAsInt(sorted.get(i));
+            ends[i] = end.applyAsInt(sorted.get(i));
+        }
+        return new IntervalIndex<>(Collections.unmodifiableList(sorted), starts, ends);
+    }
+
+    public static <T> IntervalIndex<T> empty() {
+        return new IntervalIndex<>(Collections.emptyList(), new int[0], new int[0]);
+    }
+
+    public int size() {
+        return items.size();
+    }
+
+    /**
+     * All features, sorted by start.
+     */
+    public List<T> getAll() {
+        return items;
+    }
+
+    /**
+     * Smallest start and largest end over all features, or null when empty.
+     */
+    public int[] getSpan() {
+        if (starts.length == 0) {
+            return null;
+        }
+        return new int[]{starts[0], maxEnd};
+    }
+
+    /**
+     * Calls {@code action} for every feature overlapping [from, to], in start order.
+     */
+    public void forEachOverlapping(int from, int to, Consumer<? super T> action) {
+        forEachOverlappingIndex(from, to, i -> action.accept(items.get(i)));
+    }
+
+    private void forEachOverlappingIndex(int from, int to, IntConsumer action) {
+        int n = starts.length;
+        if (n == 0 || from > to) {
+            return;
+        }
+        // Explicit stack of (index, level, leftDone); the tree is at most 32 levels deep
+        int[] stackIndex = new int[64];
+        int[] stackLevel = new int[64];
+        boolean[] stackLeftDone = new boolean[64];
+        int top = 0;
+        stackIndex[top] = (1 << rootLevel) - 1;
+        stackLevel[top] = rootLevel;
+        stackLeftDone[top++] = false;
+
+        while (top > 0) {
+            top--;
+            int x = stackIndex[top];
+            int level = stackLevel[top];
+            if (level <= LEAF_LEVEL) {
+                // Small subtree: scan it in order
+                int first = x >> level << level;
+                int last = Math.min(n, first + (1 << (level + 1)) - 1);
+                for (int i = first; i < last && starts[i] <= to; i++) {
+                    if (ends[i] >= from) {
+                        action.accept(i);
+                    }
+                }
+            } else if (!stackLeftDone[top]) {
+                int left = x - (1 << (level - 1));
+                stackLeftDone[top++] = true; // revisit x once its left subtree is done
+                // The left child may lie past the end of the array, in which case its
+                // subtree is only partly filled and has to be visited anyway
+                if (left >= n || maxEnds[left] >= from) {
+                    stackIndex[top] = left;
+                    stackLevel[top] = level - 1;
+                    stackLeftDone[top++] = false;
+                }
+            } else if (x < n && starts[x] <= to) {
+                if (ends[x] >= from) {
+                    action.accept(x);
+                }
+                stackIndex[top] = x + (1 << (level - 1));
+                stackLevel[top] = level - 1;
+                stackLeftDone[top++] = false;
+            }
+        }
+    }
+
+    /**
+     * Features overlapping [from, to], in start order.
+     */
+    public List<T> overlapping(int from, int to) {
+        List<T> result = new ArrayList<>();
+        forEachOverlapping(from, to, result::add);
+        return result;
+    }
+
+    /**
+     * Features covering a single position.
+     */
+    public List<T> at(int position) {
+        return overlapping(position, position);
+    }
+
+    /**
+     * Features lying entirely inside [from, to].
+     */
+    public List<T> containedIn(int from, int to) {
+        List<T> result = new ArrayList<>();
+        // Contained features start inside the range, so only that slice is scanned
+        for (int i = firstStartAtOrAfter(from); i < starts.length && starts[i] <= to; i++) {
+            if (ends[i] <= to) {
+                result.add(items.get(i));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Features that cover all of [from, to].
+     */
+    public List<T> containing(int from, int to) {
+        List<T> result = new ArrayList<>();
+        forEachOverlappingIndex(from, to, i -> {
+            if (starts[i] <= from && ends[i] >= to) {
+                result.add(items.get(i));
+            }
+        });
+        return result;
+    }
+
+    private int firstStartAtOrAfter(int position) {
+        int index = Arrays.binarySearch(starts, position);
+        if (index < 0) {
+            return -index - 1;
+        }
+        while (index > 0 && starts[index - 1] == position) {
+            index--;
+        }
+        return index;
+    }
+
+    /**
+     * Fills maxEnds bottom-up and returns the level of the root.
+     */
+    private int buildMaxEnds() {
+        int n = starts.length;
+        if (n == 0) {
+            return 0;
+        }
+        int lastIndex = 0;
+        int lastMax = 0;
+        for (int i = 0; i < n; i += 2) {
+            lastIndex = i;
+            lastMax = maxEnds[i] = ends[i];
+        }
+        int level = 1;
+        for (; 1L << level <= n; level++) {
+            int half = 1 << (level - 1);
+            int first = (half << 1) - 1;
+            int step = half << 2;
+            for (int i = first; i < n; i += step) {
+                int leftMax = maxEnds[i - half];
+                // A right child past the end stands for the partly filled last subtree
+                int rightMax = i + half < n ? maxEnds[i + half] : lastMax;
+                maxEnds[i] = Math.max(ends[i], Math.max(leftMax, rightMax));
+            }
+            lastIndex = (lastIndex >> level & 1) != 0 ? lastIndex - half : lastIndex + half;
+            if (lastIndex < n && maxEnds[lastIndex] > lastMax) {
+                lastMax = maxEnds[lastIndex];
+            }
+        }
+        return level - 1;
+    }
+}
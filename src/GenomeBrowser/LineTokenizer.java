@@ -0,0 +1,425 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package GenomeBrowser;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Reads delimited text (GFF/GTF, .fai) line by line straight from a byte
+ * buffer. A line is split into field offsets rather than strings; integers
+ * are parsed in place and fields are compared against constants without
+ * decoding them. Strings are only built for the fields a caller keeps, and
+ * short repeated values (feature types, strands, sources) are shared.
+ *
+ * The buffer, offsets and symbol table are reused for every line, so a pass
+ * over a file allocates nothing per line unless asked to.
+ *
+ * <pre>
+ * while (tokens.nextLine()) {
+ *     if (tokens.startsWith('#') || tokens.split('\t') &lt; 9) continue;
+ *     if (tokens.fieldEquals(2, "gene")) { int start = tokens.parseInt(3); ... }
+ * }
+ * </pre>
+ *
+ * @author davidoluwasusi
+ */
+public class LineTokenizer implements Closeable {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    // Fields up to this length go through the symbol table
+    private static final int MAX_SYMBOL_LENGTH = 32;
+    private static final int SYMBOL_TABLE_SIZE = 1024;
+    // Integers up to 2^24 and powers of ten up to 10^10 are exact floats
+    private static final long FLOAT_EXACT_MANTISSA = 1L << 24;
+    private static final float[] FLOAT_POWERS_OF_TEN = {
+        1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f
+    };
+
+    private final InputStream in;
+    private byte[] buffer = new byte[BUFFER_SIZE];
+    private int limit;
+    private boolean eof;
+    private long consumed;
+
+    // Current line is buffer[lineStart, lineEnd), without the line ending
+    private int lineStart;
+    private int lineEnd;
+    private int next;
+
+    private int fieldCount;
+    private int[] fieldStarts = new int[16];
+    private int[] fieldEnds = new int[16];
+
+    private final String[] symbols = new String[SYMBOL_TABLE_SIZE];
+
+    public LineTokenizer(InputStream in) {
+        this.in = in;
+    }
+
+    /**
+     * Opens a plain, gzip or BGZF file.
+     */
+    public static LineTokenizer open(String path) throws IOException {
+        return new LineTokenizer(CompressedInput.open(path));
+    }
+
+    /**
+     * Advances to the next line. A trailing '\r' is dropped.
+     *
+     * @return false at the end of the input
+     */
+    public boolean nextLine() throws IOException {
+        fieldCount = 0;
+        int newline = indexOf((byte) '\n', next);
+        while (newline < 0 && !eof) {
+            // Everything up to limit has been searched; fill() moves the
+            // tail so the search resumes from the same byte, not from the
+            // line start, which keeps very long lines linear
+            int searched = limit - next;
+            fill();
+            newline = indexOf((byte) '\n', next + searched);
+        }
+        if (newline < 0) {
+            if (next >= limit) {
+                return false;
+            }
+            newline = limit; // last line without a line ending
+        }
+        lineStart = next;
+        lineEnd = newline;
+        next = Math.min(limit, newline + 1);
+        consumed += next - lineStart;
+        if (lineEnd > lineStart && buffer[lineEnd - 1] == '\r') {
+            lineEnd--;
+        }
+        return true;
+    }
+
+    /**
+     * Uncompressed bytes consumed so far, including line endings.
+     */
+    public long getBytesConsumed() {
+        return consumed;
+    }
+
+    public int lineLength() {
+        return lineEnd - lineStart;
+    }
+
+    public boolean isBlank() {
+        for (int i = lineStart; i < lineEnd; i++) {
+            if (buffer[i] > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean startsWith(char c) {
+        return lineEnd > lineStart && buffer[lineStart] == c;
+    }
+
+    public String line() {
+        return decode(lineStart, lineEnd);
+    }
+
+    /**
+     * Splits the current line on a separator byte.
+     *
+     * @return the number of fields
+     */
+    public int split(char separator) {
+        fieldCount = 0;
+        int start = lineStart;
+        for (int i = lineStart; i <= lineEnd; i++) {
+            if (i == lineEnd || buffer[i] == separator) {
+                addField(start, i);
+                start = i + 1;
+            }
+        }
+        return fieldCount;
+    }
+
+    public int fieldCount() {
+        return fieldCount;
+    }
+
+    public int fieldLength(int field) {
+        return fieldEnds[field] - fieldStarts[field];
+    }
+
+    public byte byteAt(int field, int index) {
+        return buffer[fieldStarts[field] + index];
+    }
+
+    /**
+     * Offset of the current line in {@link #buffer()}.
+     */
+    int lineStart() {
+        return lineStart;
+    }
+
+    /**
+     * Offset of a field in {@link #buffer()}, for copying it out without decoding.
+     */
+    int fieldStart(int field) {
+        return fieldStarts[field];
+    }
+
+    /**
+     * The current line's buffer; only valid until the next call to {@link #nextLine()}.
+     */
+    byte[] buffer() {
+        return buffer;
+    }
+
+    public boolean fieldEquals(int field, String ascii) {
+        int start = fieldStarts[field];
+        if (fieldEnds[field] - start != ascii.length()) {
+            return false;
+        }
+        for (int i = 0; i < ascii.length(); i++) {
+            if (buffer[start + i] != ascii.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean fieldEqualsIgnoreCase(int field, String ascii) {
+        int start = fieldStarts[field];
+        if (fieldEnds[field] - start != ascii.length()) {
+            return false;
+        }
+        for (int i = 0; i < ascii.length(); i++) {
+            int b = buffer[start + i];
+            int c = ascii.charAt(i);
+            if (b != c && Character.toLowerCase(b) != Character.toLowerCase(c)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Parses a decimal integer field in place.
+     *
+     * @throws NumberFormatException if the field is not an int
+     */
+    public int parseInt(int field) {
+        long value = parseLong(field);
+        if (value != (int) value) {
+            throw new NumberFormatException("Value out of range: \"" + field(field) + "\"");
+        }
+        return (int) value;
+    }
+
+    /**
+     * Parses a decimal long field in place.
+     *
+     * @throws NumberFormatException if the field is not a long
+     */
+    public long parseLong(int field) {
+        int start = fieldStarts[field];
+        int end = fieldEnds[field];
+        boolean negative = start < end && buffer[start] == '-';
+        int i = negative || (start < end && buffer[start] == '+') ? start + 1 : start;
+        if (i == end || end - i > 19) {
+            throw new NumberFormatException("For input string: \"" + field(field) + "\"");
+        }
+        long value = 0;
+        for (; i < end; i++) {
+            int digit = buffer[i] - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException("For input string: \"" + field(field) + "\"");
+            }
+            value = value * 10 + digit;
+            if (value < 0) {
+                throw new NumberFormatException("Value out of range: \"" + field(field) + "\"");
+            }
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Parses a decimal float field in place. Values with at most seven
+     * significant digits and a small exponent (which covers GFF scores and
+     * most p-values) are computed exactly from the bytes; anything else,
+     * such as long mantissas, hex or "NaN", goes through
+     * {@link Float#parseFloat(String)}.
+     *
+     * @throws NumberFormatException if the field is not a float
+     */
+    public float parseFloat(int field) {
+        int start = fieldStarts[field];
+        int end = fieldEnds[field];
+        boolean negative = start < end && buffer[start] == '-';
+        int i = negative || (start < end && buffer[start] == '+') ? start + 1 : start;
+        long mantissa = 0;
+        int exponent = 0;
+        int digits = 0;
+        boolean point = false;
+        for (; i < end; i++) {
+            int b = buffer[i];
+            if (b == '.' && !point) {
+                point = true;
+            } else if (b >= '0' && b <= '9') {
+                if (mantissa > FLOAT_EXACT_MANTISSA / 10) {
+                    return Float.parseFloat(field(field));
+                }
+                mantissa = mantissa * 10 + (b - '0');
+                digits++;
+                if (point) {
+                    exponent--;
+                }
+            } else {
+                break;
+            }
+        }
+        if (i < end && (buffer[i] == 'e' || buffer[i] == 'E') && digits > 0) {
+            int j = i + 1;
+            boolean negativeExponent = j < end && buffer[j] == '-';
+            if (negativeExponent || (j < end && buffer[j] == '+')) {
+                j++;
+            }
+            int value = 0;
+            int from = j;
+            for (; j < end && j - from < 4 && buffer[j] >= '0' && buffer[j] <= '9'; j++) {
+                value = value * 10 + (buffer[j] - '0');
+            }
+            if (j > from) {
+                exponent += negativeExponent ? -value : value;
+                i = j;
+            }
+        }
+        if (digits == 0 || i != end || mantissa > FLOAT_EXACT_MANTISSA
+                || exponent < -FLOAT_POWERS_OF_TEN.length + 1 || exponent >= FLOAT_POWERS_OF_TEN.length) {
+            return Float.parseFloat(field(field));
+        }
+        // Both operands are exact floats, so the single rounding of the
+        // multiply or divide gives the correctly rounded result
+        float value = exponent < 0
+                ? mantissa / FLOAT_POWERS_OF_TEN[-exponent]
+                : mantissa * FLOAT_POWERS_OF_TEN[exponent];
+        return negative ? -value : value;
+    }
+
+    /**
+     * The field as a new string.
+     */
+    public String field(int field) {
+        return decode(fieldStarts[field], fieldEnds[field]);
+    }
+
+    /**
+     * The field as a shared string: short fields with the same bytes return
+     * the same instance, so low-cardinality columns cost one string each.
+     */
+    public String symbol(int field) {
+        int start = fieldStarts[field];
+        int end = fieldEnds[field];
+        if (end - start > MAX_SYMBOL_LENGTH) {
+            return decode(start, end);
+        }
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + buffer[i];
+        }
+        int slot = (hash ^ hash >>> 16) & (SYMBOL_TABLE_SIZE - 1);
+        String symbol = symbols[slot];
+        if (symbol == null || !matches(symbol, start, end)) {
+            symbol = decode(start, end);
+            symbols[slot] = symbol;
+        }
+        return symbol;
+    }
+
+    /**
+     * Offset of the first occurrence of {@code c} in the field, relative to
+     * the field start, or -1.
+     */
+    public int indexOf(int field, char c) {
+        int start = fieldStarts[field];
+        for (int i = start; i < fieldEnds[field]; i++) {
+            if (buffer[i] == c) {
+                return i - start;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Characters {@code from} to {@code to} of a field as a new string.
+     */
+    public String substring(int field, int from, int to) {
+        int start = fieldStarts[field];
+        return decode(start + from, start + Math.min(to, fieldEnds[field] - start));
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private boolean matches(String symbol, int start, int end) {
+        if (symbol.length() != end - start) {
+            return false;
+        }
+        for (int i = start; i < end; i++) {
+            if (buffer[i] != symbol.charAt(i - start)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String decode(int start, int end) {
+        return new String(buffer, start, end - start, StandardCharsets.UTF_8);
+    }
+
+    private void addField(int start, int end) {
+        if (fieldCount == fieldStarts.length) {
+            fieldStarts = Arrays.copyOf(fieldStarts, fieldCount * 2);
+            fieldEnds = Arrays.copyOf(fieldEnds, fieldCount * 2);
+        }
+        fieldStarts[fieldCount] = start;
+        fieldEnds[fieldCount] = end;
+        fieldCount++;
+    }
+
+    private int indexOf(byte b, int from) {
+        for (int i = from; i < limit; i++) {
+            if (buffer[i] == b) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Moves the unread tail to the front of the buffer (growing it for very
+     * long lines) and reads more input after it.
+     */
+    private void fill() throws IOException {
+        int remaining = limit - next;
+        if (next > 0) {
+            System.arraycopy(buffer, next, buffer, 0, remaining);
+        } else if (remaining == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        next = 0;
+        limit = remaining;
+        int read = in.read(buffer, limit, buffer.length - limit);
+        if (read < 0) {
+            eof = true;
+        } else {
+            limit += read;
+        }
+    }
+}
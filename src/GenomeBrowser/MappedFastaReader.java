@@ -0,0 +1,78 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package GenomeBrowser;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Read-only memory mapping of a FASTA file. A single MappedByteBuffer is
+ * limited to 2 GB, so the file is mapped as a series of windows and callers
+ * address it through absolute long offsets.
+ * Bytes are handed out raw; nothing is decoded to chars.
+ *
+ * @author davidoluwasusi
+ */
+public class MappedFastaReader implements ByteSource {
+
+    static final long WINDOW_SIZE = 1L << 30;
+
+    private final FileChannel channel;
+    private final long size;
+    private final MappedByteBuffer[] windows;
+
+    public MappedFastaReader(String filePath) throws IOException {
+        channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ);
+        size = channel.size();
+        // Mapping only reserves address space, so all windows are mapped up
+        // front and the reader can be shared between threads
+        windows = new MappedByteBuffer[(int) ((size + WINDOW_SIZE - 1) / WINDOW_SIZE)];
+        for (int i = 0; i < windows.length; i++) {
+            long start = i * WINDOW_SIZE;
+            windows[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(WINDOW_SIZE, size - start));
+        }
+    }
+
+    @Override
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Byte at an absolute offset in the file.
+     */
+    public byte get(long offset) {
+        return window((int) (offset / WINDOW_SIZE)).get((int) (offset % WINDOW_SIZE));
+    }
+
+    /**
+     * Copies {@code length} bytes starting at {@code offset} into {@code dst},
+     * crossing window boundaries when needed.
+     */
+    @Override
+    public void read(long offset, byte[] dst, int dstOffset, int length) {
+        while (length > 0) {
+            MappedByteBuffer window = window((int) (offset / WINDOW_SIZE));
+            int from = (int) (offset % WINDOW_SIZE);
+            int count = Math.min(length, window.limit() - from);
+            window.duplicate().position(from).get(dst, dstOffset, count);
+            offset += count;
+            dstOffset += count;
+            length -= count;
+        }
+    }
+
+    private MappedByteBuffer window(int index) {
+        return windows[index];
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package GenomeBrowser;
+
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+import javax.swing.JComponent;
+import javax.swing.SwingUtilities;
+
+/**
+ * Off-screen image of a panel's content, drawn on a background thread and
+ * kept until the panel's data or size changes. Repaints in between (expose,
+ * scrolling, hover) are a single image copy.
+ *
+ * The panel hands over a {@link Painter} that only reads data captured when
+ * it was created, since it runs off the EDT. Resizes and data changes that
+ * come faster than drawing are coalesced: only the newest request is drawn.
+ *
+ * On a scaled (HiDPI) screen the image has one pixel per device pixel: it is
+ * sized by the scale of the Graphics it is copied to, the painter draws in
+ * panel coordinates onto a Graphics scaled to match, and the copy maps the
+ * image back onto the panel's size.
+ *
+ * @author davidoluwasusi
+ */
+final class OffscreenRenderer {
+
+    /**
+     * Draws the panel content at the given size.
+     */
+    interface Painter {
+        void paint(Graphics2D g2d, int width, int height);
+    }
+
+    private static final ExecutorService RENDERER = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "panel-renderer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final JComponent owner;
+    // Only touched on the EDT; sizes are in panel units unless named pixels
+    private BufferedImage image;
+    private int imageVersion = -1;
+    private int imageWidth;
+    private int imageHeight;
+    private int version;
+    private int requestedVersion = -1;
+    private int requestedWidth;
+    private int requestedHeight;
+    private int requestedPixelWidth;
+    private int requestedPixelHeight;
+    // Copies of the newest request for the renderer thread, so it can skip stale ones
+    private volatile int latestVersion = -1;
+    private volatile long latestPixelSize;
+
+    OffscreenRenderer(JComponent owner) {
+        this.owner = owner;
+    }
+
+    /**
+     * Drops the cached image, e.g. after the data changed. Must be called on the EDT.
+     */
+    void invalidate() {
+        version++;
+        owner.repaint();
+    }
+
+    /**
+     * Copies the cached image onto {@code g}, asking for a new one in the
+     * background when the size or data changed. Until that is ready the
+     * previous image, if any, is shown as is.
+     *
+     * @param painter creates a painter for the current data; called on the EDT
+     * @return false when there is nothing to show yet
+     */
+    boolean paint(Graphics g, Supplier<Painter> painter) {
+        int width = owner.getWidth();
+        int height = owner.getHeight();
+        if (width <= 0 || height <= 0) {
+            return false;
+        }
+        AffineTransform transform = g instanceof Graphics2D ? ((Graphics2D) g).getTransform() : new AffineTransform();
+        double scaleX = Math.abs(transform.getScaleX()) > 0 ? Math.abs(transform.getScaleX()) : 1;
+        double scaleY = Math.abs(transform.getScaleY()) > 0 ? Math.abs(transform.getScaleY()) : 1;
+        int pixelWidth = (int) Math.ceil(width * scaleX);
+        int pixelHeight = (int) Math.ceil(height * scaleY);
+        boolean current = image != null && imageVersion == version
+                && imageWidth == width && imageHeight == height
+                && image.getWidth() == pixelWidth && image.getHeight() == pixelHeight;
+        if (!current && (requestedVersion != version || requestedWidth != width || requestedHeight != height
+                || requestedPixelWidth != pixelWidth || requestedPixelHeight != pixelHeight)) {
+            request(painter.get(), width, height, pixelWidth, pixelHeight);
+        }
+        if (image == null) {
+            return false;
+        }
+        g.drawImage(image, 0, 0, imageWidth, imageHeight, null);
+        return true;
+    }
+
+    private void request(Painter painter, int width, int height, int pixelWidth, int pixelHeight) {
+        int requested = version;
+        requestedVersion = requested;
+        requestedWidth = width;
+        requestedHeight = height;
+        requestedPixelWidth = pixelWidth;
+        requestedPixelHeight = pixelHeight;
+        latestVersion = requested;
+        latestPixelSize = (long) pixelWidth << 32 | pixelHeight;
+        RENDERER.execute(() -> {
+            if (!isLatest(requested, pixelWidth, pixelHeight)) {
+                return; // a newer request is queued behind this one
+            }
+            BufferedImage rendered = new BufferedImage(pixelWidth, pixelHeight, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D g2d = rendered.createGraphics();
+            try {
+                g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+                g2d.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+                g2d.scale((double) pixelWidth / width, (double) pixelHeight / height);
+                painter.paint(g2d, width, height);
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+                // Forget the request so that the next repaint asks again
+                // instead of waiting for an image that will never come
+                SwingUtilities.invokeLater(() -> {
+                    if (requestedVersion == requested) {
+                        requestedVersion = -1;
+                    }
+                });
+                return;
+            } finally {
+                g2d.dispose();
+            }
+            SwingUtilities.invokeLater(() -> {
+                if (requested == version) {
+                    image = rendered;
+                    imageVersion = requested;
+                    imageWidth = width;
+                    imageHeight = height;
+                    owner.repaint();
+                }
+            });
+        });
+    }
+
+    private boolean isLatest(int requested, int pixelWidth, int pixelHeight) {
+        return latestVersion == requested && latestPixelSize == ((long) pixelWidth << 32 | pixelHeight);
+    }
+}
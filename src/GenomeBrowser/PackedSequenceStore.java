@@ -0,0 +1,262 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package GenomeBrowser;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Scaffold sequences packed at 2 bits per base in off-heap pages. N bases and
+ * lowercase (soft-masked) bases are kept as run tables next to the packed
+ * bases, the same way the UCSC .2bit format does it. Any other IUPAC code is
+ * stored as N.
+ *
+ * Positions are 0-based and scaffolds may be longer than Integer.MAX_VALUE.
+ *
+ * @author davidoluwasusi
+ */
+public class PackedSequenceStore {
+
+    // 2^28 bases (64 MB) per direct buffer
+    private static final int PAGE_SHIFT = 28;
+    private static final long PAGE_MASK = (1L << PAGE_SHIFT) - 1;
+    private static final int PAGE_BYTES = 1 << (PAGE_SHIFT - 2);
+    private static final int FIRST_PAGE_BYTES = 1 << 12;
+
+    private static final char[] BASES = {'A', 'C', 'G', 'T'};
+    private static final byte[] CODES = new byte[256];
+    private static final int NOT_ACGT = -1;
+
+    static {
+        Arrays.fill(CODES, (byte) NOT_ACGT);
+        CODES['A'] = 0;
+        CODES['a'] = 0;
+        CODES['C'] = 1;
+        CODES['c'] = 1;
+        CODES['G'] = 2;
+        CODES['g'] = 2;
+        CODES['T'] = 3;
+        CODES['t'] = 3;
+        CODES['U'] = 3;
+        CODES['u'] = 3;
+    }
+
+    private final List<ByteBuffer> pages;
+    private final Map<String, Contig> contigs;
+
+    private PackedSequenceStore(List<ByteBuffer> pages, Map<String, Contig> contigs) {
+        this.pages = pages;
+        this.contigs = contigs;
+    }
+
+    public boolean contains(String contig) {
+        return contigs.containsKey(contig);
+    }
+
+    public int getContigCount() {
+        return contigs.size();
+    }
+
+    public long getLength(String contig) {
+        return requireContig(contig).length;
+    }
+
+    /**
+     * Off-heap bytes used by the packed bases plus the on-heap run tables.
+     */
+    public long getByteSize() {
+        long size = 0;
+        for (ByteBuffer page : pages) {
+            size += page.capacity();
+        }
+        for (Contig contig : contigs.values()) {
+            size += contig.nRuns.byteSize() + contig.maskRuns.byteSize();
+        }
+        return size;
+    }
+
+    public char baseAt(String contigName, long position) {
+        Contig contig = requireContig(contigName);
+        if (position < 0 || position >= contig.length) {
+            throw new IndexOutOfBoundsException("Position " + position + " outside " + contigName);
+        }
+        char base = contig.nRuns.contains(position) ? 'N' : BASES[code(contig.firstBase + position)];
+        return contig.maskRuns.contains(position) ? Character.toLowerCase(base) : base;
+    }
+
+    /**
+     * Bases {@code start} (inclusive) to {@code end} (exclusive) of a scaffold.
+     */
+    public String subsequence(String contigName, long start, long end) {
+        Contig contig = requireContig(contigName);
+        if (start < 0 || end > contig.length || start > end) {
+            throw new IndexOutOfBoundsException("Range " + start + "-" + end + " outside " + contigName);
+        }
+        char[] bases = new char[Math.toIntExact(end - start)];
+        for (int i = 0; i < bases.length; i++) {
+            bases[i] = BASES[code(contig.firstBase + start + i)];
+        }
+        contig.nRuns.apply(bases, start, (chars, i) -> chars[i] = 'N');
+        contig.maskRuns.apply(bases, start, (chars, i) -> chars[i] = Character.toLowerCase(chars[i]));
+        return new String(bases);
+    }
+
+    private int code(long baseIndex) {
+        ByteBuffer page = pages.get((int) (baseIndex >>> PAGE_SHIFT));
+        long inPage = baseIndex & PAGE_MASK;
+        return (page.get((int) (inPage >>> 2)) >>> ((int) (inPage & 3) * 2)) & 3;
+    }
+
+    private Contig requireContig(String name) {
+        Contig contig = contigs.get(name);
+        if (contig == null) {
+            throw new IllegalArgumentException("Unknown scaffold: " + name);
+        }
+        return contig;
+    }
+
+    private static class Contig {
+
+        final long firstBase;
+        long length;
+        final RunTable nRuns = new RunTable();
+        final RunTable maskRuns = new RunTable();
+
+        Contig(long firstBase) {
+            this.firstBase = firstBase;
+        }
+    }
+
+    /**
+     * Sorted, non-overlapping [start, end) runs within one scaffold.
+     */
+    private static class RunTable {
+
+        interface RunAction {
+            void apply(char[] chars, int index);
+        }
+
+        private long[] starts = new long[0];
+        private long[] ends = new long[0];
+        private int count;
+
+        void extend(long position) {
+            // Consecutive positions grow the last run instead of adding a new one
+            if (count > 0 && ends[count - 1] == position) {
+                ends[count - 1]++;
+                return;
+            }
+            if (count == starts.length) {
+                int capacity = Math.max(8, count * 2);
+                starts = Arrays.copyOf(starts, capacity);
+                ends = Arrays.copyOf(ends, capacity);
+            }
+            starts[count] = position;
+            ends[count] = position + 1;
+            count++;
+        }
+
+        boolean contains(long position) {
+            int run = lastRunStartingAtOrBefore(position);
+            return run >= 0 && position < ends[run];
+        }
+
+        void apply(char[] chars, long offset, RunAction action) {
+            long rangeEnd = offset + chars.length;
+            int run = Math.max(0, lastRunStartingAtOrBefore(offset));
+            for (; run < count && starts[run] < rangeEnd; run++) {
+                long from = Math.max(starts[run], offset);
+                long to = Math.min(ends[run], rangeEnd);
+                for (long p = from; p < to; p++) {
+                    action.apply(chars, (int) (p - offset));
+                }
+            }
+        }
+
+        long byteSize() {
+            return 16L * starts.length;
+        }
+
+        private int lastRunStartingAtOrBefore(long position) {
+            int low = 0;
+            int high = count - 1;
+            int found = -1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (starts[mid] <= position) {
+                    found = mid;
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            return found;
+        }
+    }
+
+    /**
+     * Packs scaffolds as they stream past during FASTA ingestion.
+     */
+    public static class Builder implements FastaIngestor.BaseListener {
+
+        private final List<ByteBuffer> pages = new ArrayList<>();
+        private final Map<String, Contig> contigs = new HashMap<>();
+        private Contig current;
+        private long nextBase;
+
+        @Override
+        public void onHeader(String header) {
+            current = new Contig(nextBase);
+            contigs.put(FastaDataset.idOf(header), current);
+        }
+
+        @Override
+        public void onBases(byte[] buffer, int from, int to) {
+            if (current == null) {
+                return; // sequence before the first header
+            }
+            for (int i = from; i < to; i++) {
+                int b = buffer[i] & 0xFF;
+                int code = CODES[b];
+                long position = current.length++;
+                if (code == NOT_ACGT) {
+                    current.nRuns.extend(position);
+                    code = 0;
+                }
+                if (b >= 'a' && b <= 'z') {
+                    current.maskRuns.extend(position);
+                }
+                put(nextBase++, code);
+            }
+        }
+
+        private void put(long baseIndex, int code) {
+            int pageIndex = (int) (baseIndex >>> PAGE_SHIFT);
+            if (pageIndex == pages.size()) {
+                pages.add(ByteBuffer.allocateDirect(FIRST_PAGE_BYTES));
+            }
+            ByteBuffer page = pages.get(pageIndex);
+            long inPage = baseIndex & PAGE_MASK;
+            int byteIndex = (int) (inPage >>> 2);
+            int shift = (int) (inPage & 3) * 2;
+            if (byteIndex >= page.capacity()) {
+                // Pages start small and double, so a small genome does not pin 64 MB
+                ByteBuffer larger = ByteBuffer.allocateDirect(Math.min(PAGE_BYTES, page.capacity() * 2));
+                larger.put(page.duplicate().clear());
+                pages.set(pageIndex, larger);
+                page = larger;
+            }
+            page.put(byteIndex, (byte) (page.get(byteIndex) | (code << shift)));
+        }
+
+        public PackedSequenceStore build() {
+            return new PackedSequenceStore(pages, contigs);
+        }
+    }
+}
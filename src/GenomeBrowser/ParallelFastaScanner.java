@@ -0,0 +1,74 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package GenomeBrowser;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Fork/join scan of a mapped FASTA file. The file is split into byte ranges
+ * that start on line boundaries, each range is scanned into its own record
+ * table (lengths, GC/AT/N counts, header offsets, line geometry), and the
+ * tables are stitched together in file order. A record that spans several
+ * ranges is carried over through the continuation record at the start of
+ * each range.
+ *
+ * @author davidoluwasusi
+ */
+class ParallelFastaScanner extends RecursiveTask<FastaDataset.Builder> {
+
+    private static final long MIN_CHUNK_SIZE = 8L << 20;
+
+    private final MappedFastaReader reader;
+    private final long start;
+    private final long end;
+    private final long chunkSize;
+
+    private ParallelFastaScanner(MappedFastaReader reader, long start, long end, long chunkSize) {
+        this.reader = reader;
+        this.start = start;
+        this.end = end;
+        this.chunkSize = chunkSize;
+    }
+
+    static FastaDataset.Builder scan(MappedFastaReader reader) {
+        return ForkJoinPool.commonPool().invoke(create(reader));
+    }
+
+    static ForkJoinTask<FastaDataset.Builder> fork(MappedFastaReader reader) {
+        return ForkJoinPool.commonPool().submit(create(reader));
+    }
+
+    private static ParallelFastaScanner create(MappedFastaReader reader) {
+        // A few chunks per core so uneven chunks still keep every core busy
+        int parallelism = ForkJoinPool.commonPool().getParallelism();
+        long chunkSize = Math.max(MIN_CHUNK_SIZE, reader.size() / (parallelism * 4L));
+        return new ParallelFastaScanner(reader, 0, reader.size(), chunkSize);
+    }
+
+    @Override
+    protected FastaDataset.Builder compute() {
+        long middle = end - start > chunkSize ? nextLineStart(start + (end - start) / 2) : end;
+        if (middle >= end) {
+            return new FastaIngestor().scanRange(reader, start, end, start > 0);
+        }
+
+        ParallelFastaScanner left = new ParallelFastaScanner(reader, start, middle, chunkSize);
+        ParallelFastaScanner right = new ParallelFastaScanner(reader, middle, end, chunkSize);
+        left.fork();
+        FastaDataset.Builder rightTable = right.compute();
+        FastaDataset.Builder leftTable = left.join();
+        leftTable.append(rightTable);
+        return leftTable;
+    }
+
+    private long nextLineStart(long offset) {
+        while (offset < end && reader.get(offset - 1) != '\n') {
+            offset++;
+        }
+        return offset;
+    }
+}
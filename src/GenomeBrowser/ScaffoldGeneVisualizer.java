@@ -10,76 +10,362 @@ package GenomeBrowser;
 
 import javax.swing.*;
 import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.ArrayList;
 import java.util.HashMap;
 
 /**
+ * Genes of one scaffold on a zoomable track. The mouse wheel zooms around
+ * the pointer, dragging pans and a double click shows the whole scaffold
+ * again. Only the genes overlapping the visible range are queried from the
+ * interval index; genes narrower than a pixel are counted per pixel column
+ * and drawn as density bars instead of individual rectangles. Once a pixel
+ * spans a whole {@link FeatureDensity} bin, the bars come from the density
+ * pyramid instead, so the whole-scaffold view does not touch single genes.
+ * When the scaffold's {@link CompositionTrack} windows are set, GC,
+ * soft-masked and N content are drawn as a signal track under the genes,
+ * following the same zoom and pan.
  *
  * @author davidoluwasusi
  */
 
 public class ScaffoldGeneVisualizer extends JPanel {
 
+    private static final Color SCAFFOLD_COLOR = Color.LIGHT_GRAY;
+    private static final Color FORWARD_COLOR = Color.BLUE;
+    private static final Color REVERSE_COLOR = Color.RED;
+    private static final Color COVERAGE_COLOR = new Color(70, 130, 180);
+    private static final Color COUNT_COLOR = Color.GRAY;
+    private static final Color GC_COLOR = new Color(0, 140, 70);
+    private static final Color MASKED_COLOR = new Color(230, 140, 0);
+    private static final Color N_COLOR = new Color(128, 128, 128, 90);
+    private static final int SIGNAL_HEIGHT = 50;
+    private static final int PADDING = 40;
+    private static final int TRACK_HEIGHT = 25;
+    // Deepest zoom: this many bases across the track
+    private static final double MIN_VIEW_BASES = 50;
+    private static final double WHEEL_ZOOM = 1.25;
+
+    private final OffscreenRenderer renderer = new OffscreenRenderer(this);
     private String scaffoldName;
-    private List<Gene> genes; // List of genes on the scaffold
-    private int scaffoldLength;
+    private IntervalIndex<Gene> genes; // Genes on the scaffold
+    private FeatureDensity density;
+    private long scaffoldLength;
+    private CompositionTrack.Scaffold composition; // only touched on the EDT
+    // Visible range in 0-based scaffold coordinates; only touched on the EDT
+    private double viewStart;
+    private double viewLength;
+
+    public ScaffoldGeneVisualizer(String scaffoldName, Map<String, IntervalIndex<Gene>> geneData, long scaffoldLength) {
+        this(scaffoldName, geneData, Collections.emptyMap(), scaffoldLength);
+    }
 
-    public ScaffoldGeneVisualizer(String scaffoldName, Map<String, List<Gene>> geneData, int scaffoldLength) {
+    /**
+     * @param densityData prebuilt density pyramids by seqid (see
+     * {@link GeneModelCache#getDensity}); built from the genes when missing
+     */
+    public ScaffoldGeneVisualizer(String scaffoldName, Map<String, IntervalIndex<Gene>> geneData,
+            Map<String, FeatureDensity> densityData, long scaffoldLength) {
         this.scaffoldName = scaffoldName;
-        this.genes = geneData.getOrDefault(scaffoldName, new ArrayList<>());
-        this.scaffoldLength = scaffoldLength;
+        this.genes = geneData.getOrDefault(scaffoldName, IntervalIndex.empty());
+        this.density = densityData.get(scaffoldName);
+        if (density == null) {
+            density = FeatureDensity.of(genes.getAll(), gene -> gene.start, gene -> gene.end);
+        }
+        // Genes past the end of the sequence (or no sequence length at all) still get shown
+        int[] span = genes.getSpan();
+        this.scaffoldLength = Math.max(1, Math.max(scaffoldLength, span == null ? 0 : span[1]));
+        this.viewLength = this.scaffoldLength;
         setPreferredSize(new Dimension(800, 150));
+
+        MouseAdapter navigation = new MouseAdapter() {
+            private int pressX;
+            private double pressStart;
+
+            @Override
+            public void mousePressed(MouseEvent e) {
+                pressX = e.getX();
+                pressStart = viewStart;
+            }
+
+            @Override
+            public void mouseDragged(MouseEvent e) {
+                setView(pressStart - (e.getX() - pressX) * basesPerPixel(), viewLength);
+            }
+
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                if (e.getClickCount() == 2) {
+                    setView(0, ScaffoldGeneVisualizer.this.scaffoldLength);
+                }
+            }
+
+            @Override
+            public void mouseWheelMoved(MouseWheelEvent e) {
+                // Keep the position under the pointer in place
+                double anchor = viewStart + (e.getX() - PADDING) * basesPerPixel();
+                double length = viewLength * Math.pow(WHEEL_ZOOM, e.getPreciseWheelRotation());
+                length = Math.max(MIN_VIEW_BASES, Math.min(ScaffoldGeneVisualizer.this.scaffoldLength, length));
+                setView(anchor - (anchor - viewStart) * length / viewLength, length);
+            }
+        };
+        addMouseListener(navigation);
+        addMouseMotionListener(navigation);
+        addMouseWheelListener(navigation);
+    }
+
+    /**
+     * Shows {@code length} bases from {@code start} (0-based), kept inside the scaffold.
+     */
+    private void setView(double start, double length) {
+        length = Math.min(scaffoldLength, length);
+        start = Math.max(0, Math.min(scaffoldLength - length, start));
+        if (start != viewStart || length != viewLength) {
+            viewStart = start;
+            viewLength = length;
+            renderer.invalidate();
+        }
+    }
+
+    /**
+     * Shows the composition windows of this scaffold under the genes.
+     */
+    public void setComposition(CompositionTrack.Scaffold composition) {
+        this.composition = composition;
+        renderer.invalidate();
+    }
+
+    private double basesPerPixel() {
+        return viewLength / Math.max(1, getWidth() - 2 * PADDING);
     }
 
     @Override
     protected void paintComponent(Graphics g) {
         super.paintComponent(g);
-        Graphics2D g2d = (Graphics2D) g;
-        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        // The track is drawn off the EDT into a cached image; repaints only copy it
+        double start = viewStart;
+        double length = viewLength;
+        CompositionTrack.Scaffold signal = composition;
+        if (!renderer.paint(g, () -> (g2d, width, height) -> render(g2d, width, height, start, length, signal))) {
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, getWidth(), getHeight());
+        }
+    }
 
+    /**
+     * Draws {@code viewLength} bases from {@code viewStart}; runs on the
+     * renderer thread, so the view is passed in rather than read from fields.
+     */
+    private void render(Graphics2D g2d, int panelWidth, int panelHeight, double viewStart, double viewLength,
+            CompositionTrack.Scaffold signal) {
         // Background
         g2d.setColor(Color.WHITE);
-        g2d.fillRect(0, 0, getWidth(), getHeight());
+        g2d.fillRect(0, 0, panelWidth, panelHeight);
 
-        int padding = 40;
-        int usableWidth = getWidth() - 2 * padding;
-        int trackHeight = 25;
+        int usableWidth = Math.max(1, panelWidth - 2 * PADDING);
+        // The signal track, when there is one, takes the bottom of the panel
+        int signalTop = panelHeight - SIGNAL_HEIGHT - 20;
+        int centerY = (signal == null ? panelHeight : signalTop) / 2;
+        int top = centerY - TRACK_HEIGHT / 2;
 
         // Draw the scaffold line
-        g2d.setColor(Color.LIGHT_GRAY);
-        g2d.fillRect(padding, getHeight() / 2 - 5, usableWidth, 10);
+        g2d.setColor(SCAFFOLD_COLOR);
+        g2d.fillRect(PADDING, centerY - 5, usableWidth, 10);
 
-        // Scale factor to fit genes in the panel
-        double scale = (double) usableWidth / scaffoldLength;
+        double basesPerPixel = viewLength / usableWidth;
+        FontMetrics metrics = g2d.getFontMetrics();
+        int level = density.selectLevel(basesPerPixel);
+        if (level >= 0) {
+            drawPyramid(g2d, density, level, viewStart, basesPerPixel, usableWidth, centerY);
+            g2d.setColor(Color.BLACK);
+            g2d.drawString("Gene density: bases covered (above), genes (below)", PADDING, top - 5);
+        } else {
+            drawGenes(g2d, metrics, viewStart, basesPerPixel, usableWidth, centerY);
+        }
+        if (signal != null) {
+            drawSignal(g2d, metrics, signal, viewStart, basesPerPixel, usableWidth, signalTop);
+        }
 
-        // Draw genes
-        for (Gene gene : genes) {
-            int startX = padding + (int) (gene.start * scale);
-            int endX = padding + (int) (gene.end * scale);
-            int width = Math.max(endX - startX, 5); // Ensure minimum width
+        // Visible range
+        g2d.setColor(Color.BLACK);
+        String first = String.format("%,d", (long) viewStart + 1);
+        String last = String.format("%,d", (long) Math.ceil(viewStart + viewLength));
+        g2d.drawString(first, PADDING, panelHeight - 10);
+        g2d.drawString(last, PADDING + usableWidth - metrics.stringWidth(last), panelHeight - 10);
+        if (viewLength < scaffoldLength) {
+            String zoom = String.format("%s: %,d bp shown of %,d", scaffoldName, (long) viewLength, scaffoldLength);
+            g2d.drawString(zoom, PADDING + (usableWidth - metrics.stringWidth(zoom)) / 2, panelHeight - 10);
+        }
+    }
 
-            // Set color based on strand
-            if (gene.strand.equals("+")) {
-                g2d.setColor(Color.BLUE);
-            } else {
-                g2d.setColor(Color.RED);
+    /**
+     * Draws the genes overlapping the view one by one; genes narrower than a
+     * pixel are counted per column and drawn as density bars.
+     */
+    private void drawGenes(Graphics2D g2d, FontMetrics metrics, double viewStart, double basesPerPixel,
+            int usableWidth, int centerY) {
+        int top = centerY - TRACK_HEIGHT / 2;
+        // Genes below one pixel are counted per column, by strand
+        int[] forward = new int[usableWidth];
+        int[] reverse = new int[usableWidth];
+        int from = (int) Math.min(Integer.MAX_VALUE, (long) viewStart + 1);
+        int to = (int) Math.min(Integer.MAX_VALUE, (long) Math.ceil(viewStart + usableWidth * basesPerPixel));
+        int[] labelEnd = {Integer.MIN_VALUE}; // labels are skipped where they would overlap the previous one
+        genes.forEachOverlapping(from, to, gene -> {
+            // Gene covers [start - 1, end) in 0-based coordinates
+            double x0 = (gene.start - 1 - viewStart) / basesPerPixel;
+            double x1 = (gene.end - viewStart) / basesPerPixel;
+            boolean forwardStrand = gene.strand.equals("+");
+            if (x1 - x0 < 1) {
+                int column = (int) Math.max(0, Math.min(usableWidth - 1, x0));
+                if (forwardStrand) {
+                    forward[column]++;
+                } else {
+                    reverse[column]++;
+                }
+                return;
             }
+            // Clip to the track so deep zooms do not overflow pixel coordinates
+            int startX = PADDING + (int) Math.max(-1, x0);
+            int endX = PADDING + (int) Math.min(usableWidth + 1, x1);
+            int width = Math.max(1, endX - startX);
+
+            // Set color based on strand
+            g2d.setColor(forwardStrand ? FORWARD_COLOR : REVERSE_COLOR);
 
             // Draw gene
-            g2d.fillRect(startX, getHeight() / 2 - trackHeight / 2, width, trackHeight);
+            g2d.fillRect(startX, top, width, TRACK_HEIGHT);
             g2d.setColor(Color.BLACK);
-            g2d.drawRect(startX, getHeight() / 2 - trackHeight / 2, width, trackHeight);
+            g2d.drawRect(startX, top, width, TRACK_HEIGHT);
+
+            // Label with gene name when there is room for it, else with the strand
+            String label = metrics.stringWidth(gene.name) <= width ? gene.name : gene.strand;
+            int labelX = Math.max(startX, PADDING);
+            if (metrics.stringWidth(label) <= width && labelX > labelEnd[0]) {
+                g2d.drawString(label, labelX, top - 5);
+                labelEnd[0] = labelX + metrics.stringWidth(label) + 4;
+            }
+        });
+        drawDensity(g2d, forward, reverse, centerY);
+    }
+
+    /**
+     * Zoomed-out view from the density pyramid: the share of each column's
+     * bases covered by genes above the scaffold line, genes per kb below it,
+     * scaled to the densest column.
+     */
+    private static void drawPyramid(Graphics2D g2d, FeatureDensity density, int level, double viewStart,
+            double basesPerPixel, int usableWidth, int centerY) {
+        float[] perKb = new float[usableWidth];
+        float[] covered = new float[usableWidth];
+        density.fill(level, viewStart, basesPerPixel, perKb, covered);
+        float maxPerKb = Float.MIN_VALUE;
+        for (float value : perKb) {
+            maxPerKb = Math.max(maxPerKb, value);
+        }
+        int half = TRACK_HEIGHT / 2;
+        for (int column = 0; column < usableWidth; column++) {
+            if (covered[column] > 0) {
+                int height = Math.max(1, Math.round(covered[column] * half));
+                g2d.setColor(COVERAGE_COLOR);
+                g2d.fillRect(PADDING + column, centerY - height, 1, height);
+            }
+            if (perKb[column] > 0) {
+                int height = Math.max(1, Math.round(perKb[column] / maxPerKb * half));
+                g2d.setColor(COUNT_COLOR);
+                g2d.fillRect(PADDING + column, centerY, 1, height);
+            }
+        }
+    }
+
+    /**
+     * GC and soft-masked content as lines, N content as grey bars hanging
+     * from the top, all on a 0 to 100% scale.
+     */
+    private static void drawSignal(Graphics2D g2d, FontMetrics metrics, CompositionTrack.Scaffold signal,
+            double viewStart, double basesPerPixel, int usableWidth, int signalTop) {
+        float[] gc = new float[usableWidth];
+        float[] n = new float[usableWidth];
+        float[] masked = new float[usableWidth];
+        signal.fill(CompositionTrack.GC, viewStart, basesPerPixel, gc);
+        signal.fill(CompositionTrack.N, viewStart, basesPerPixel, n);
+        signal.fill(CompositionTrack.SOFT_MASKED, viewStart, basesPerPixel, masked);
 
-            // Label with gene name
-            g2d.drawString(gene.strand, startX, getHeight() / 2 - trackHeight / 2 - 5);
+        g2d.setColor(SCAFFOLD_COLOR);
+        g2d.drawRect(PADDING, signalTop, usableWidth, SIGNAL_HEIGHT);
+        g2d.setColor(N_COLOR);
+        for (int column = 0; column < usableWidth; column++) {
+            if (n[column] > 0) {
+                g2d.fillRect(PADDING + column, signalTop, 1, Math.max(1, Math.round(n[column] * SIGNAL_HEIGHT)));
+            }
         }
+        drawSignalLine(g2d, masked, MASKED_COLOR, signalTop);
+        drawSignalLine(g2d, gc, GC_COLOR, signalTop);
 
-        // Labels
         g2d.setColor(Color.BLACK);
-        g2d.drawString("Start", padding, getHeight() - 10);
-        g2d.drawString("End", getWidth() - padding, getHeight() - 10);
+        g2d.drawString("100%", PADDING - metrics.stringWidth("100%") - 2, signalTop + metrics.getAscent());
+        g2d.drawString("0%", PADDING - metrics.stringWidth("0%") - 2, signalTop + SIGNAL_HEIGHT);
+        // Legend, right-aligned above the track
+        int x = PADDING + usableWidth;
+        int y = signalTop - 3;
+        String[] names = {"N", "soft-masked", "GC"};
+        Color[] colors = {Color.GRAY, MASKED_COLOR, GC_COLOR};
+        for (int i = 0; i < names.length; i++) {
+            x -= metrics.stringWidth(names[i]);
+            g2d.setColor(colors[i]);
+            g2d.drawString(names[i], x, y);
+            x -= 8;
+        }
+    }
+
+    private static void drawSignalLine(Graphics2D g2d, float[] values, Color color, int signalTop) {
+        g2d.setColor(color);
+        int bottom = signalTop + SIGNAL_HEIGHT;
+        int previousY = -1;
+        for (int column = 0; column < values.length; column++) {
+            if (Float.isNaN(values[column])) {
+                previousY = -1; // gap: no bases, or all N
+                continue;
+            }
+            int y = bottom - Math.round(values[column] * SIGNAL_HEIGHT);
+            if (previousY >= 0) {
+                g2d.drawLine(PADDING + column - 1, previousY, PADDING + column, y);
+            } else {
+                g2d.drawLine(PADDING + column, y, PADDING + column, y);
+            }
+            previousY = y;
+        }
+    }
+
+    /**
+     * Per-column counts of sub-pixel genes: forward strand above the scaffold
+     * line, reverse strand below, scaled to the fullest column.
+     */
+    private static void drawDensity(Graphics2D g2d, int[] forward, int[] reverse, int centerY) {
+        int max = 0;
+        for (int column = 0; column < forward.length; column++) {
+            max = Math.max(max, Math.max(forward[column], reverse[column]));
+        }
+        if (max == 0) {
+            return;
+        }
+        int half = TRACK_HEIGHT / 2;
+        for (int column = 0; column < forward.length; column++) {
+            if (forward[column] > 0) {
+                int height = Math.max(1, forward[column] * half / max);
+                g2d.setColor(FORWARD_COLOR);
+                g2d.fillRect(PADDING + column, centerY - height, 1, height);
+            }
+            if (reverse[column] > 0) {
+                int height = Math.max(1, reverse[column] * half / max);
+                g2d.setColor(REVERSE_COLOR);
+                g2d.fillRect(PADDING + column, centerY, 1, height);
+            }
+        }
     }
 
     // Gene class for storing information
@@ -0,0 +1,168 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package GenomeBrowser;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Least-recently-used cache of packed scaffold sequences, bounded by the
+ * bytes the packed scaffolds occupy rather than by their number. Scaffolds
+ * are loaded on first use, so memory follows what is being viewed instead of
+ * the size of the genome. A scaffold larger than the whole budget is still
+ * kept, on its own, until the next one is loaded.
+ *
+ * @author davidoluwasusi
+ */
+public class ScaffoldSequenceCache {
+
+    /**
+     * Loads one scaffold into a single-contig store.
+     */
+    public interface Loader {
+        PackedSequenceStore load(String scaffoldName) throws IOException;
+    }
+
+    // Shared by every cache: a new cache is made for each FASTA file opened
+    private static final ExecutorService PREFETCHER = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "scaffold-prefetch");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Loader loader;
+    private final long byteBudget;
+    // Both maps are guarded by this; a scaffold leaves loading in the same
+    // step that puts it in entries, so a miss never misses a running load
+    private final LinkedHashMap<String, PackedSequenceStore> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, CompletableFuture<PackedSequenceStore>> loading = new HashMap<>();
+
+    private long bytesUsed;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public ScaffoldSequenceCache(Loader loader, long byteBudget) {
+        this.loader = loader;
+        this.byteBudget = byteBudget;
+    }
+
+    /**
+     * Returns the scaffold, loading it on a miss. Concurrent requests for the
+     * same scaffold share a single load.
+     */
+    public PackedSequenceStore get(String scaffoldName) throws IOException {
+        CompletableFuture<PackedSequenceStore> load = new CompletableFuture<>();
+        CompletableFuture<PackedSequenceStore> running;
+        synchronized (this) {
+            PackedSequenceStore cached = entries.get(scaffoldName);
+            if (cached != null) {
+                hits++;
+                return cached;
+            }
+            misses++;
+            running = loading.putIfAbsent(scaffoldName, load);
+        }
+        if (running != null) {
+            return await(running);
+        }
+        try {
+            PackedSequenceStore store = loader.load(scaffoldName);
+            put(scaffoldName, store);
+            load.complete(store);
+            return store;
+        } catch (IOException | RuntimeException e) {
+            synchronized (this) {
+                loading.remove(scaffoldName);
+            }
+            load.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Loads a scaffold in the background if it is not cached yet.
+     */
+    public void prefetch(String scaffoldName) {
+        synchronized (this) {
+            if (entries.containsKey(scaffoldName) || loading.containsKey(scaffoldName)) {
+                return;
+            }
+        }
+        PREFETCHER.execute(() -> {
+            try {
+                get(scaffoldName);
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Error prefetching scaffold " + scaffoldName + ": " + e.getMessage());
+            }
+        });
+    }
+
+    private synchronized void put(String scaffoldName, PackedSequenceStore store) {
+        loading.remove(scaffoldName);
+        PackedSequenceStore previous = entries.put(scaffoldName, store);
+        if (previous != null) {
+            bytesUsed -= previous.getByteSize();
+        }
+        bytesUsed += store.getByteSize();
+
+        // Evict from the least recently used end, but never the entry just added
+        Iterator<Map.Entry<String, PackedSequenceStore>> eldest = entries.entrySet().iterator();
+        while (bytesUsed > byteBudget && entries.size() > 1) {
+            Map.Entry<String, PackedSequenceStore> entry = eldest.next();
+            if (entry.getKey().equals(scaffoldName)) {
+                continue;
+            }
+            bytesUsed -= entry.getValue().getByteSize();
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    private static PackedSequenceStore await(CompletableFuture<PackedSequenceStore> load) throws IOException {
+        try {
+            return load.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        bytesUsed = 0;
+    }
+
+    public synchronized long getBytesUsed() {
+        return bytesUsed;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("%d scaffolds, %.1f/%.1f MB, %d hits, %d misses, %d evictions",
+                entries.size(), bytesUsed / 1048576.0, byteBudget / 1048576.0, hits, misses, evictions);
+    }
+}
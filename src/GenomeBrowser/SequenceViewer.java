@@ -5,11 +5,6 @@
 package GenomeBrowser;
 
 import GenomeBrowser.utilities.TextPaneUtil;
-import java.io.BufferedReader;
-import java.io.FileReader;
-import java.io.IOException;
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import javax.swing.JFrame;
@@ -30,7 +25,6 @@ public class SequenceViewer extends javax.swing.JPanel {
 
     private String fastaPath = "";
     private Map<String, List<int[]>> parsedExonsFromGtf;
-    private ArrayList geneList = new ArrayList();
 
     private JPanel getThisPanel() {
         return this;
@@ -61,72 +55,49 @@ public class SequenceViewer extends javax.swing.JPanel {
             JTextPane statsTextPane,
             GenomeBrowser.GeneExplorer explorerTab
     ) {
-        SwingWorker<Void, String> worker = new SwingWorker<>() {
-            int totalLength = 0;
-            int totalSequences = 0;
-            int gcCount = 0;
-            int currentSequenceLength = 0;
-            int currentGCCount = 0;
-
-            private Map<String, Object> fastaStats = new HashMap<>(); // To store the calculated statistics
+        SwingWorker<FastaDataset, String> worker = new SwingWorker<>() {
+            private StringBuilder chunkBuilder = new StringBuilder();
 
             @Override
-            protected Void doInBackground() {
-                try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
-                    StringBuilder chunkBuilder = new StringBuilder();
-                    String line;
-
-                    while ((line = reader.readLine()) != null) {
-                        line = line.trim();
-
-                        if (line.startsWith(">")) {
-                            // Finalize the current sequence
-                            if (currentSequenceLength > 0) {
-                                totalLength += currentSequenceLength;
-                                gcCount += currentGCCount;
-                                totalSequences++;
-                                currentSequenceLength = 0;
-                                currentGCCount = 0;
-                            }
-
-                            // Add header to the chunk
-                            chunkBuilder.append("<br><b>").append(line).append("</b><br>");
-                            geneList.add(getGeneIdFromLine(line));
-                        } else {
-                            // Add sequence data to chunk and process for statistics
-                            chunkBuilder.append(line);
-                            currentSequenceLength += line.length();
-                            currentGCCount += countGC(line);
-                        }
-
-                        if (chunkBuilder.length() > 20000) {
-                            // Publish the current chunk and reset
-                            publish(chunkBuilder.toString());
-                            chunkBuilder = new StringBuilder();
-                        }
+            protected FastaDataset doInBackground() throws Exception {
+                // One pass over the file feeds the text pane and the shared
+                // dataset (lengths, composition, metrics)
+                FastaIngestor ingestor = new FastaIngestor();
+                ingestor.addListener(new FastaIngestor.RecordListener() {
+                    @Override
+                    public void onHeader(String header) {
+                        // Add header to the chunk
+                        chunkBuilder.append("<br><b>>").append(header).append("</b><br>");
+                        publishIfFull();
                     }
 
-                    // Finalize the last sequence
-                    if (currentSequenceLength > 0) {
-                        totalLength += currentSequenceLength;
-                        gcCount += currentGCCount;
-                        totalSequences++;
+                    @Override
+                    public void onSequenceLine(String line) {
+                        chunkBuilder.append(line);
+                        publishIfFull();
                     }
+                });
 
-                    // Publish any remaining HTML
-                    if (chunkBuilder.length() > 0) {
-                        publish(chunkBuilder.toString());
-                    }
-                } catch (Exception e) {
-                    System.out.println("Error processing FASTA file: " + e.getMessage());
+                FastaDataset dataset = ingestor.ingest(filePath);
+
+                // Publish any remaining HTML
+                if (chunkBuilder.length() > 0) {
+                    publish(chunkBuilder.toString());
                 }
-                return null;
+                return dataset;
             }
 
-            private void displayFastaStats(String namePath) {
-                // Compute basic statistics for GFF
-                BasicStatisticsCalculator calculator = new BasicStatisticsCalculator();
-                AssemblyMetrics metrics = calculator.calculateAssemblyMetrics(namePath);
+            private void publishIfFull() {
+                if (chunkBuilder.length() > 20000) {
+                    // Publish the current chunk and reset
+                    publish(chunkBuilder.toString());
+                    chunkBuilder = new StringBuilder();
+                }
+            }
+
+            private void displayFastaStats(FastaDataset dataset) {
+                AssemblyMetrics metrics = dataset.getMetrics();
+                double gcContent = metrics.totalLength > 0 ? (double) dataset.getTotalGcCount() / metrics.totalLength : 0;
 
                 // Format statistics
                 String statsString = "FASTA Assembly Metrics:\n"
@@ -134,17 +105,14 @@ public class SequenceViewer extends javax.swing.JPanel {
                         + "Total Length: " + metrics.totalLength + "\n"
                         + "Largest Contig: " + metrics.largestContig + "\n"
                         + "Average Contig Length: " + metrics.averageLength + "\n"
-                        + "N50: " + metrics.n50 + "\n";
+                        + "N50: " + metrics.n50 + "\n"
+                        + String.format("GC Content: %.2f%%%n", gcContent * 100);
 
                 // Update statistics panel
                 var currentText = String.join("\n", statsTextPane.getText());
                 statsTextPane.setText(currentText.concat("\n").concat(statsString.toString()));
             }
 
-            private int countGC(String sequence) {
-                return (int) sequence.chars().filter(ch -> ch == 'G' || ch == 'C').count();
-            }
-
             @Override
             protected void process(java.util.List<String> chunks) {
                 javax.swing.text.Document doc = textPane.getDocument();
@@ -158,9 +126,22 @@ public class SequenceViewer extends javax.swing.JPanel {
 
             @Override
             protected void done() {
-                // display the stats once processing is complete
-                displayFastaStats(filePath);
-                TextPaneUtil.toggleApplicationLoader(getParentFrame(getThisPanel()), false);
+                try {
+                    // Every consumer reads the dataset instead of rescanning the file
+                    FastaDataset dataset = get();
+                    displayFastaStats(dataset);
+                    explorerTab.setExplorerFastaDataset(dataset);
+                } catch (Exception e) {
+                    System.out.println("Error processing FASTA file: " + e.getMessage());
+                    JOptionPane.showMessageDialog(
+                            textPane,
+                            "An error occurred while loading the FASTA file: " + e.getMessage(),
+                            "Error",
+                            JOptionPane.ERROR_MESSAGE
+                    );
+                } finally {
+                    TextPaneUtil.toggleApplicationLoader(getParentFrame(getThisPanel()), false);
+                }
             }
         };
 
@@ -222,11 +203,6 @@ public class SequenceViewer extends javax.swing.JPanel {
         }.execute();
     }
 
-    private String getGeneIdFromLine(String line) {
-        String[] parts = line.split("\\|");
-        return parts[0].substring(1);
-    }
-
     /**
      * This method is called from within the constructor to initialize the form.
      * WARNING: Do NOT modify this code. The content of this method is always
@@ -4,28 +4,280 @@
  */
 package GenomeBrowser;
 
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.concurrent.ExecutionException;
+import javax.swing.JMenuItem;
+import javax.swing.JOptionPane;
+import javax.swing.JPopupMenu;
 import javax.swing.JTable;
+import javax.swing.SwingWorker;
+import javax.swing.table.TableColumn;
 
 /**
  *
  * @author davidoluwasusi
  */
 public class TableViewer extends javax.swing.JPanel {
-    
-    
 
+    private static final String TITLE = "Annotation File";
 
+    private GffTableModel model;
+    // Sort and filters currently asked for; only touched on the EDT
+    private GffRowView view = new GffRowView();
+    // Bumped for every request so that a slower, older result is dropped
+    private int viewGeneration;
+    // Rows are still arriving; sorting and filtering wait until they are all in
+    private boolean loading;
+    // Gene -> transcript -> exon links of the loaded file, once built
+    private GeneModelTree geneModels;
 
     /**
      * Creates new form TableViewer
      */
     public TableViewer() {
         initComponents();
+        loadProgressBar.setVisible(false);
+        installSortAndFilter();
     }
     
     public JTable getTablePane() {
         return tablePane;
     }
+
+    /**
+     * Shows the features of a GFF file, in file order and unfiltered.
+     */
+    public void setFeatures(GffFeatureStore features) {
+        model = new GffTableModel(features);
+        view = new GffRowView();
+        viewGeneration++;
+        loading = false;
+        geneModels = null;
+        loadProgressBar.setVisible(false);
+        tablePane.setModel(model);
+        updateTitle();
+    }
+
+    /**
+     * Shows the first rows of a file that is still being read. Later rows
+     * come in through {@link #appendFeatures} and {@link #finishLoading}.
+     */
+    public void beginLoading(GffFeatureStore firstRows) {
+        setFeatures(firstRows);
+        loading = true;
+        loadProgressBar.setValue(0);
+        loadProgressBar.setVisible(true);
+        updateTitle();
+    }
+
+    public void appendFeatures(GffFeatureStore rowsSoFar) {
+        model.append(rowsSoFar);
+        updateTitle();
+    }
+
+    /**
+     * Shows how much of the file has been read.
+     *
+     * @param totalBytes size of the file, or 0 when it is not known
+     *                   (compressed input), which shows an indeterminate bar
+     */
+    public void setLoadProgress(long bytesRead, long totalBytes) {
+        loadProgressBar.setIndeterminate(totalBytes <= 0);
+        if (totalBytes > 0) {
+            loadProgressBar.setValue((int) Math.min(100, bytesRead * 100 / totalBytes));
+            loadProgressBar.setString(null);
+        } else {
+            loadProgressBar.setString(String.format("%,d MB", bytesRead >> 20));
+        }
+    }
+
+    /**
+     * Ends loading with every row of the file, or with the rows read before
+     * an error.
+     */
+    public void finishLoading(GffFeatureStore allRows) {
+        if (!loading) {
+            // Small file, no earlier snapshot was shown
+            setFeatures(allRows);
+            return;
+        }
+        model.append(allRows);
+        loading = false;
+        loadProgressBar.setVisible(false);
+        updateTitle();
+    }
+
+    /**
+     * Enables the gene structure view for the rows shown. Ignored when the
+     * models belong to another file than the one shown by now.
+     */
+    public void setGeneModels(GeneModelTree models) {
+        if (model != null && !loading && model.getFeatures() == models.getFeatures()) {
+            geneModels = models;
+        }
+    }
+
+    /**
+     * Header click sorts on a column: ascending, descending, then file order.
+     * Right click on a row offers filters on its seqid, type and strand, and
+     * the exon structure of a gene row.
+     */
+    private void installSortAndFilter() {
+        tablePane.getTableHeader().addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int column = tablePane.columnAtPoint(e.getPoint());
+                if (model == null || loading || column < 0 || e.getButton() != MouseEvent.BUTTON1) {
+                    return;
+                }
+                int modelColumn = tablePane.convertColumnIndexToModel(column);
+                if (!GffRowView.isSortable(modelColumn)) {
+                    return;
+                }
+                if (view.getSortColumn() != modelColumn) {
+                    view.setSort(modelColumn, true);
+                } else if (view.isAscending()) {
+                    view.setSort(modelColumn, false);
+                } else {
+                    view.setSort(-1, true);
+                }
+                refreshView();
+            }
+        });
+        tablePane.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e) {
+                showFilterMenu(e);
+            }
+
+            @Override
+            public void mouseReleased(MouseEvent e) {
+                showFilterMenu(e);
+            }
+        });
+    }
+
+    private void showFilterMenu(MouseEvent e) {
+        int row = tablePane.rowAtPoint(e.getPoint());
+        if (!e.isPopupTrigger() || model == null || loading || row < 0) {
+            return;
+        }
+        GffFeatureStore features = model.getFeatures();
+        int storeRow = model.getStoreRow(row);
+        JPopupMenu menu = new JPopupMenu();
+        for (int column : new int[]{GffRowView.SEQID, GffRowView.TYPE, GffRowView.STRAND}) {
+            String label = GffFeatureStore.COLUMN_NAMES[column] + " " + features.getValue(storeRow, column);
+            int code = GffRowView.codeOf(features, storeRow, column);
+            JMenuItem only = new JMenuItem("Only " + label);
+            only.addActionListener(event -> {
+                view.only(column, code);
+                refreshView();
+            });
+            JMenuItem hide = new JMenuItem("Hide " + label);
+            hide.addActionListener(event -> {
+                view.hide(features, column, code);
+                refreshView();
+            });
+            menu.add(only);
+            menu.add(hide);
+        }
+        menu.addSeparator();
+        JMenuItem clear = new JMenuItem("Show all features");
+        clear.setEnabled(view.isFiltered());
+        clear.addActionListener(event -> {
+            view.clearFilters();
+            refreshView();
+        });
+        menu.add(clear);
+        String gene = geneAt(storeRow);
+        if (gene != null) {
+            menu.addSeparator();
+            JMenuItem structure = new JMenuItem("Show structure of gene " + gene);
+            structure.addActionListener(event -> showGeneStructure(gene));
+            menu.add(structure);
+        }
+        menu.show(tablePane, e.getX(), e.getY());
+    }
+
+    /**
+     * ID (GFF3) or gene_id (GTF) of the gene a row belongs to, or null when
+     * the row is not part of a gene model.
+     */
+    private String geneAt(int storeRow) {
+        if (geneModels == null) {
+            return null;
+        }
+        GffFeatureStore features = geneModels.getFeatures();
+        for (String tag : new String[]{GffAttributes.ID, GffAttributes.GENE_ID}) {
+            String name = features.getAttribute(storeRow, tag);
+            if (name != null && geneModels.findGene(name) >= 0) {
+                return name;
+            }
+        }
+        return null;
+    }
+
+    private void showGeneStructure(String gene) {
+        Visualizer visualizer = new Visualizer();
+        visualizer.setGeneVisualization(geneModels, gene);
+        JOptionPane.showMessageDialog(this, visualizer, "Gene " + gene, JOptionPane.PLAIN_MESSAGE);
+    }
+
+    /**
+     * Computes the rows for the current sort and filters in the background
+     * and swaps them into the model in one step when done.
+     */
+    private void refreshView() {
+        GffTableModel target = model;
+        GffRowView request = view.copy();
+        int generation = ++viewGeneration;
+        updateHeader();
+        tablePaneTitle.setText(TITLE + " (updating...)");
+
+        new SwingWorker<int[], Void>() {
+            @Override
+            protected int[] doInBackground() {
+                return request.apply(target.getFeatures());
+            }
+
+            @Override
+            protected void done() {
+                if (generation != viewGeneration) {
+                    return; // superseded by a newer request
+                }
+                try {
+                    target.setRows(get());
+                } catch (InterruptedException | ExecutionException e) {
+                    e.printStackTrace();
+                }
+                updateTitle();
+            }
+        }.execute();
+    }
+
+    private void updateHeader() {
+        for (int i = 0; i < tablePane.getColumnCount(); i++) {
+            TableColumn column = tablePane.getColumnModel().getColumn(i);
+            int modelColumn = column.getModelIndex();
+            String name = GffFeatureStore.COLUMN_NAMES[modelColumn];
+            if (modelColumn == view.getSortColumn()) {
+                name += view.isAscending() ? " \u25B2" : " \u25BC";
+            }
+            column.setHeaderValue(name);
+        }
+        tablePane.getTableHeader().repaint();
+    }
+
+    private void updateTitle() {
+        int total = model.getFeatures().size();
+        int shown = model.getRowCount();
+        tablePaneTitle.setText(loading
+                ? String.format("%s (%,d features, loading...)", TITLE, total)
+                : shown == total
+                ? String.format("%s (%,d features)", TITLE, total)
+                : String.format("%s (%,d of %,d features)", TITLE, shown, total));
+    }
    
 
     /**
@@ -40,6 +292,7 @@ public class TableViewer extends javax.swing.JPanel {
         tablePaneTitle = new javax.swing.JLabel();
         tablePaneScrollPanel = new javax.swing.JScrollPane();
         tablePane = new javax.swing.JTable();
+        loadProgressBar = new javax.swing.JProgressBar();
 
         setAutoscrolls(true);
 
@@ -66,20 +319,25 @@ public class TableViewer extends javax.swing.JPanel {
         });
         tablePaneScrollPanel.setViewportView(tablePane);
 
+        loadProgressBar.setStringPainted(true);
+
         javax.swing.GroupLayout layout = new javax.swing.GroupLayout(this);
         this.setLayout(layout);
         layout.setHorizontalGroup(
             layout.createParallelGroup(javax.swing.GroupLayout.Alignment.LEADING)
             .addGroup(layout.createSequentialGroup()
                 .addComponent(tablePaneTitle)
-                .addGap(0, 0, Short.MAX_VALUE))
+                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED, javax.swing.GroupLayout.DEFAULT_SIZE, Short.MAX_VALUE)
+                .addComponent(loadProgressBar, javax.swing.GroupLayout.PREFERRED_SIZE, 200, javax.swing.GroupLayout.PREFERRED_SIZE))
             .addComponent(tablePaneScrollPanel, javax.swing.GroupLayout.DEFAULT_SIZE, 650, Short.MAX_VALUE)
         );
         layout.setVerticalGroup(
             layout.createParallelGroup(javax.swing.GroupLayout.Alignment.LEADING)
             .addGroup(layout.createSequentialGroup()
                 .addContainerGap()
-                .addComponent(tablePaneTitle)
+                .addGroup(layout.createParallelGroup(javax.swing.GroupLayout.Alignment.CENTER)
+                    .addComponent(tablePaneTitle)
+                    .addComponent(loadProgressBar, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE))
                 .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
                 .addComponent(tablePaneScrollPanel, javax.swing.GroupLayout.PREFERRED_SIZE, 231, javax.swing.GroupLayout.PREFERRED_SIZE)
                 .addContainerGap(50, Short.MAX_VALUE))
@@ -88,6 +346,7 @@ public class TableViewer extends javax.swing.JPanel {
 
 
     // Variables declaration - do not modify//GEN-BEGIN:variables
+    private javax.swing.JProgressBar loadProgressBar;
     private javax.swing.JTable tablePane;
     private javax.swing.JScrollPane tablePaneScrollPanel;
     private javax.swing.JLabel tablePaneTitle;
@@ -0,0 +1,60 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package GenomeBrowser;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD composition kernel on the incubating Vector API. Each vector of bytes
+ * is case-folded with a single OR, compared against each base, and the lane
+ * masks are popcounted. The tail shorter than one vector goes through the
+ * scalar kernel. Only instantiated by {@link BaseCounter} when the
+ * jdk.incubator.vector module is present.
+ *
+ * @author davidoluwasusi
+ */
+final class VectorBaseCounter implements BaseCounter.Kernel {
+
+    private static final VectorSpecies<Byte> SPECIES = ByteVector.SPECIES_PREFERRED;
+
+    @Override
+    public void count(byte[] bytes, int from, int to, long[] counts) {
+        long a = 0;
+        long c = 0;
+        long g = 0;
+        long t = 0;
+        long n = 0;
+        long softMasked = 0;
+
+        int i = from;
+        int bound = from + SPECIES.loopBound(to - from);
+        for (; i < bound; i += SPECIES.length()) {
+            ByteVector bases = ByteVector.fromArray(SPECIES, bytes, i);
+            // Setting bit 0x20 maps 'A'..'Z' onto 'a'..'z'
+            ByteVector folded = bases.or((byte) 0x20);
+            a += folded.compare(VectorOperators.EQ, (byte) 'a').trueCount();
+            c += folded.compare(VectorOperators.EQ, (byte) 'c').trueCount();
+            g += folded.compare(VectorOperators.EQ, (byte) 'g').trueCount();
+            VectorMask<Byte> thymine = folded.compare(VectorOperators.EQ, (byte) 't')
+                    .or(folded.compare(VectorOperators.EQ, (byte) 'u'));
+            t += thymine.trueCount();
+            n += folded.compare(VectorOperators.EQ, (byte) 'n').trueCount();
+            softMasked += bases.compare(VectorOperators.GE, (byte) 'a')
+                    .and(bases.compare(VectorOperators.LE, (byte) 'z')).trueCount();
+        }
+
+        counts[BaseCounter.A] += a;
+        counts[BaseCounter.C] += c;
+        counts[BaseCounter.G] += g;
+        counts[BaseCounter.T] += t;
+        counts[BaseCounter.N] += n;
+        counts[BaseCounter.OTHER] += (i - from) - (a + c + g + t + n);
+        counts[BaseCounter.SOFT_MASKED] += softMasked;
+        BaseCounter.scalarKernel().count(bytes, i, to, counts);
+    }
+}
@@ -4,6 +4,7 @@
  */
 package GenomeBrowser;
 
+import java.awt.BorderLayout;
 import java.util.List;
 import java.util.Map;
 
@@ -29,12 +30,33 @@ public class Visualizer extends javax.swing.JPanel {
         visPane.removeAll();
 
         // Create the custom visualizer component
-        GeneVisualizer visualizer = new GeneVisualizer(geneName, exonData, geneStart, geneEnd);
-        visualizer.setSize(visPane.getWidth(), visPane.getHeight());
+        showVisualizer(new GeneVisualizer(geneName, exonData, geneStart, geneEnd));
+    }
+
+    /**
+     * Shows a gene of a gene model tree built from the loaded GFF file.
+     *
+     * @param models the gene -> transcript -> exon links of the file
+     * @param geneName ID or gene_id of the gene
+     * @return false when the file has no such gene
+     */
+    public boolean setGeneVisualization(GeneModelTree models, String geneName) {
+        int gene = models.findGene(geneName);
+        if (gene < 0) {
+            return false;
+        }
+        visPane.removeAll();
+        showVisualizer(new GeneVisualizer(models, gene));
+        return true;
+    }
+
+    private void showVisualizer(GeneVisualizer visualizer) {
         visualizer.setVisible(true);
 
-        // Add the visualizer to the panel
-        visPane.add(visualizer);
+        // Add the visualizer to the panel; the generated GroupLayout only
+        // knows its own components, so the pane takes a BorderLayout
+        visPane.setLayout(new BorderLayout());
+        visPane.add(visualizer, BorderLayout.CENTER);
         visPane.revalidate();
         visPane.repaint();
     }